@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each semantic analysis pass on its own, over ASTs and symbol tables built beforehand.
+ * <p>
+ * The passes only read the AST, so the same trees are reused by every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AnalysisPassBenchmark {
+
+    private static final String PASSES_PACKAGE = "pt.up.fe.comp2024.analysis.passes.";
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    @Param({"UndeclaredVariable", "Types", "Varargs", "InvalidParameters", "ReturnChecker", "Duplicates", "Statics",
+            "LengthChecker"})
+    public String pass;
+
+    private final List<JmmNode> roots = new ArrayList<>();
+    private final List<SymbolTable> tables = new ArrayList<>();
+    private Class<? extends AnalysisPass> passClass;
+
+    @Setup
+    public void setup() throws ClassNotFoundException {
+        passClass = Class.forName(PASSES_PACKAGE + pass).asSubclass(AnalysisPass.class);
+
+        var parser = new JmmParserImpl();
+        var config = Corpus.getConfig();
+        for (var code : Corpus.load(corpus)) {
+            var root = parser.parse(code, config).getRootNode();
+            roots.add(root);
+            var table = JmmSymbolTableBuilder.build(root);
+            TypeUtils.attributeTypes(root, table);
+            tables.add(table);
+        }
+    }
+
+    @Benchmark
+    public void analyze(Blackhole blackhole) throws ReflectiveOperationException {
+        for (int i = 0; i < roots.size(); i++) {
+            // Passes keep their reports, so each unit gets a new instance, as in JmmAnalysisImpl
+            var analysisPass = passClass.getDeclaredConstructor().newInstance();
+            blackhole.consume(analysisPass.analyze(roots.get(i), tables.get(i)));
+        }
+    }
+}
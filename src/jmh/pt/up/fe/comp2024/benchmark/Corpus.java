@@ -0,0 +1,72 @@
+package pt.up.fe.comp2024.benchmark;
+
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmCompiler;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Inputs of the benchmarks.
+ * <p>
+ * The "cpf" corpus is made of the fixtures of the course tests that compile without errors, so that every stage can
+ * be measured on all of them. The fixtures are read from the 'jmm.fixtures' directory, by default the one in the
+ * repository.
+ * <p>
+ * A "generated-N" corpus is a single program of about N lines from {@link ProgramGenerator}, so that running a
+ * benchmark over several sizes gives the scaling curve of its stage.
+ */
+public class Corpus {
+
+    private static final String FIXTURES = System.getProperty("jmm.fixtures", "test/pt/up/fe/comp/cpf");
+    private static final String GENERATED_PREFIX = "generated-";
+
+    public static List<String> load(String name) {
+        if (name.startsWith(GENERATED_PREFIX)) {
+            int lines = Integer.parseInt(name.substring(GENERATED_PREFIX.length()));
+            return List.of(new ProgramGenerator(ProgramGenerator.Options.forLines(lines)).generate());
+        }
+
+        if (!name.equals("cpf")) {
+            throw new IllegalArgumentException("Unknown corpus '" + name + "'");
+        }
+
+        try (Stream<Path> paths = Files.walk(Path.of(FIXTURES))) {
+            var config = getConfig();
+            var sources = paths.filter(path -> path.toString().endsWith(".jmm"))
+                    .sorted()
+                    .map(path -> SpecsIo.read(path.toFile()))
+                    .filter(code -> compiles(code, config))
+                    .toList();
+
+            if (sources.isEmpty()) {
+                throw new IllegalStateException("No fixtures found in '" + FIXTURES + "'");
+            }
+
+            return sources;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read fixtures from '" + FIXTURES + "'", e);
+        }
+    }
+
+    /**
+     * @return the same configuration as the command line without options
+     */
+    public static Map<String, String> getConfig() {
+        return CompilerConfig.getDefault();
+    }
+
+    private static boolean compiles(String code, Map<String, String> config) {
+        try {
+            return new JmmCompiler(config).compile(code).isSuccess();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.FusedAnalysis;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.analysis.ParallelAnalysis;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All the semantic analysis passes over the corpus, each with its own traversal of the AST, fused in a single
+ * traversal by {@link FusedAnalysis}, and with the methods analyzed concurrently by {@link ParallelAnalysis}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FusedAnalysisBenchmark {
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    @Param({"sequential", "fused", "parallel"})
+    public String mode;
+
+    private final List<JmmNode> roots = new ArrayList<>();
+    private final List<SymbolTable> tables = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        var parser = new JmmParserImpl();
+        var config = Corpus.getConfig();
+        for (var code : Corpus.load(corpus)) {
+            var root = parser.parse(code, config).getRootNode();
+            var table = JmmSymbolTableBuilder.build(root);
+            TypeUtils.attributeTypes(root, table);
+            roots.add(root);
+            tables.add(table);
+        }
+    }
+
+    @Benchmark
+    public void analyze(Blackhole blackhole) {
+        for (int i = 0; i < roots.size(); i++) {
+            if (mode.equals("parallel")) {
+                blackhole.consume(new ParallelAnalysis(JmmAnalysisImpl::createPasses).analyze(roots.get(i), tables.get(i)));
+                continue;
+            }
+
+            var passes = JmmAnalysisImpl.createPasses();
+
+            if (mode.equals("fused")) {
+                blackhole.consume(new FusedAnalysis(passes).analyze(roots.get(i), tables.get(i)));
+                continue;
+            }
+
+            for (var pass : passes) {
+                blackhole.consume(pass.analyze(roots.get(i), tables.get(i)));
+            }
+        }
+    }
+}
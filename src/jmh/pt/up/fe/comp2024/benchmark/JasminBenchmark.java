@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jasmin generation from OLLIR results built beforehand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JasminBenchmark {
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    private List<OllirResult> ollirResults;
+
+    @Setup
+    public void setup() {
+        var parser = new JmmParserImpl();
+        var optimization = new JmmOptimizationImpl();
+        var config = Corpus.getConfig();
+        ollirResults = Corpus.load(corpus).stream()
+                .map(code -> new JmmAnalysisImpl().semanticAnalysis(parser.parse(code, config)))
+                .map(semantics -> optimization.optimize(optimization.toOllir(semantics)))
+                .toList();
+    }
+
+    @Benchmark
+    public void build(Blackhole blackhole) {
+        for (var ollirResult : ollirResults) {
+            // The generator caches its code, so each unit gets a new one
+            blackhole.consume(new JasminGenerator(ollirResult).build());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of the kinds of every node of the corpus, with {@link Kind#fromString(String)} and with the linear scan
+ * over the kinds it replaced, and dispatch of a visitor over the same trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class KindBenchmark {
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    @Param({"generic", "typed"})
+    public String ast;
+
+    private List<JmmNode> roots;
+    private List<String> kinds;
+
+    @Setup
+    public void setup() {
+        var parser = new JmmParserImpl();
+        var config = Corpus.getConfig();
+        config.put("ast", ast);
+        roots = Corpus.load(corpus).stream()
+                .map(code -> parser.parse(code, config).getRootNode())
+                .toList();
+
+        kinds = new ArrayList<>();
+        for (var root : roots) {
+            root.getDescendantsAndSelfStream().forEach(node -> kinds.add(node.getKind()));
+        }
+    }
+
+    @Benchmark
+    public void fromString(Blackhole blackhole) {
+        for (var kind : kinds) {
+            blackhole.consume(Kind.fromString(kind));
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (var kind : kinds) {
+            blackhole.consume(scan(kind));
+        }
+    }
+
+    @Benchmark
+    public void dispatch(Blackhole blackhole) {
+        var visitor = new CountingVisitor();
+        for (var root : roots) {
+            blackhole.consume(visitor.visit(root, null));
+        }
+    }
+
+    private static Kind scan(String kind) {
+        for (Kind k : Kind.values()) {
+            if (k.getNodeName().equals(kind)) {
+                return k;
+            }
+        }
+        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+    }
+
+    /**
+     * Visits every node, with a visit method for each kind like the analysis passes have.
+     */
+    private static class CountingVisitor extends AJmmVisitor<Void, Integer> {
+
+        @Override
+        protected void buildVisitor() {
+            for (Kind kind : Kind.values()) {
+                addVisit(kind, this::visitNode);
+            }
+        }
+
+        private Integer visitNode(JmmNode node, Void unused) {
+            int count = 1;
+            for (var child : node.getChildren()) {
+                count += visit(child, null);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OLLIR generation from analysed ASTs.
+ * <p>
+ * Only the generation of the OLLIR text is measured, not its parsing into the OLLIR class model, which happens when
+ * the result is created and is library code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OllirBenchmark {
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    private List<JmmSemanticsResult> semantics;
+
+    @Setup
+    public void setup() {
+        var parser = new JmmParserImpl();
+        var config = Corpus.getConfig();
+        semantics = Corpus.load(corpus).stream()
+                .map(code -> new JmmAnalysisImpl().semanticAnalysis(parser.parse(code, config)))
+                .toList();
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        for (var result : semantics) {
+            blackhole.consume(new OllirGeneratorVisitor(result.getSymbolTable()).visit(result.getRootNode()));
+        }
+    }
+}
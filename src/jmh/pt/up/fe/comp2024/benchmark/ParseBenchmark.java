@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing, parsing and conversion to the JmmNode AST of the whole corpus, with the two-stage SLL/LL strategy and with
+ * LL only, and with the generic conversion and the typed AST builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark {
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    @Param({"sll", "ll"})
+    public String parser;
+
+    @Param({"generic", "typed"})
+    public String ast;
+
+    private List<String> sources;
+    private Map<String, String> config;
+
+    @Setup
+    public void setup() {
+        sources = Corpus.load(corpus);
+        config = Corpus.getConfig();
+        config.put("parser", parser);
+        config.put("ast", ast);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        var jmmParser = new JmmParserImpl();
+        for (var code : sources) {
+            blackhole.consume(jmmParser.parse(code, config));
+        }
+    }
+}
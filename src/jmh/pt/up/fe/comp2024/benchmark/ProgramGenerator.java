@@ -0,0 +1,312 @@
+package pt.up.fe.comp2024.benchmark;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of configurable size, to see how each stage scales beyond the small fixtures.
+ * <p>
+ * A program is a single class with int, boolean and int[] fields and a chain of methods. Each method declares its
+ * locals, then runs random statements (assignments, array stores, nested ifs and counted whiles, calls to other
+ * methods and prints), and returns one of its locals. The same options and seed always give the same program.
+ */
+public class ProgramGenerator {
+
+    private static final String CLASS_NAME = "Generated";
+
+    private final Options options;
+    private final Random random;
+    private final StringBuilder code = new StringBuilder();
+
+    private int indent;
+    private int loopCounters;
+
+    public ProgramGenerator(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    /**
+     * Writes a program to a file, e.g. to compile it with the command line.
+     * <p>
+     * Usage: ProgramGenerator &lt;output file&gt; &lt;approximate lines&gt;
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: ProgramGenerator <output file> <approximate lines>");
+            return;
+        }
+
+        var program = new ProgramGenerator(Options.forLines(Integer.parseInt(args[1]))).generate();
+        SpecsIo.write(new File(args[0]), program);
+    }
+
+    public String generate() {
+        code.setLength(0);
+
+        line("import io;");
+        line("");
+        line("class " + CLASS_NAME + " {");
+        indent++;
+
+        for (int i = 0; i < options.fields; i++) {
+            line(typeOf(i) + " f" + i + ";");
+        }
+        line("");
+
+        for (int i = 0; i < options.methods; i++) {
+            generateMethod(i);
+        }
+        generateMain();
+
+        indent--;
+        line("}");
+
+        return code.toString();
+    }
+
+    private void generateMethod(int index) {
+        var params = new StringBuilder();
+        for (int i = 0; i < paramCount(index); i++) {
+            params.append(i == 0 ? "" : ", ").append("int p").append(i);
+        }
+
+        line("public int m" + index + "(" + params + ") {");
+        indent++;
+
+        loopCounters = 0;
+        for (int i = 0; i < options.locals; i++) {
+            line(typeOf(i) + " l" + i + ";");
+        }
+        for (int i = 0; i < options.depth; i++) {
+            line("int c" + i + ";");
+        }
+
+        // Every local is initialized, so that later reads are well defined
+        for (int i = 0; i < options.locals; i++) {
+            switch (i % 3) {
+                case 0 -> line("l" + i + " = " + (paramCount(index) > 0 ? "p0" : "1") + " + " + i + ";");
+                case 1 -> line("l" + i + " = true;");
+                default -> line("l" + i + " = new int[" + (i + 8) + "];");
+            }
+        }
+
+        generateStatements(index, options.statements, 0);
+
+        line("return l0;");
+        indent--;
+        line("}");
+        line("");
+    }
+
+    private void generateMain() {
+        line("public static void main(String[] args) {");
+        indent++;
+        line(CLASS_NAME + " g;");
+        line("int r;");
+        line("g = new " + CLASS_NAME + "();");
+        for (int i = 0; i < Math.min(options.methods, options.fanOut); i++) {
+            // main is static, so the arguments are literals
+            line("r = g.m" + i + "(" + "1, ".repeat(paramCount(i) - 1) + "1);");
+        }
+        line("io.println(r);");
+        indent--;
+        line("}");
+    }
+
+    private void generateStatements(int method, int count, int depth) {
+        for (int i = 0; i < count; i++) {
+            int choice = random.nextInt(10);
+
+            if (choice < 2 && depth < options.depth) {
+                generateIf(method, depth);
+            } else if (choice < 4 && depth < options.depth && loopCounters < options.loops) {
+                generateWhile(method, depth);
+            } else if (choice < 5) {
+                generateCall(method);
+            } else if (choice < 6) {
+                line(arrayLocal() + "[" + intExpr(1) + "] = " + intExpr(2) + ";");
+            } else if (choice < 7) {
+                line(booleanLocal() + " = " + booleanExpr() + ";");
+            } else if (choice < 8) {
+                line("io.println(" + intLocal() + ");");
+            } else {
+                line(intLocal() + " = " + intExpr(3) + ";");
+            }
+        }
+    }
+
+    private void generateIf(int method, int depth) {
+        line("if (" + booleanExpr() + ") {");
+        indent++;
+        generateStatements(method, 1 + random.nextInt(3), depth + 1);
+        indent--;
+        line("} else {");
+        indent++;
+        generateStatements(method, 1 + random.nextInt(3), depth + 1);
+        indent--;
+        line("}");
+    }
+
+    private void generateWhile(int method, int depth) {
+        loopCounters++;
+
+        // Counted loop, on the counter of its depth, so that it terminates
+        var counter = "c" + depth;
+        line(counter + " = 0;");
+        line("while (" + counter + " < " + (2 + random.nextInt(8)) + ") {");
+        indent++;
+        generateStatements(method, 1 + random.nextInt(3), depth + 1);
+        line(counter + " = " + counter + " + 1;");
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Calls one of the next few methods (as many as the fan-out), so that the call graph has no cycles.
+     */
+    private void generateCall(int method) {
+        int callees = Math.min(options.fanOut, options.methods - method - 1);
+        if (callees <= 0) {
+            line(intLocal() + " = " + intExpr(2) + ";");
+            return;
+        }
+
+        int callee = method + 1 + random.nextInt(callees);
+        line(intLocal() + " = this.m" + callee + "(" + arguments(callee) + ");");
+    }
+
+    private String arguments(int method) {
+        var args = new StringBuilder();
+        for (int i = 0; i < paramCount(method); i++) {
+            args.append(i == 0 ? "" : ", ").append(intExpr(1));
+        }
+        return args.toString();
+    }
+
+    private String intExpr(int size) {
+        if (size <= 1) {
+            return switch (random.nextInt(5)) {
+                case 0 -> Integer.toString(random.nextInt(100));
+                case 1 -> arrayLocal() + ".length";
+                case 2 -> intField();
+                default -> intLocal();
+            };
+        }
+
+        var op = switch (random.nextInt(4)) {
+            case 0 -> " + ";
+            case 1 -> " - ";
+            case 2 -> " * ";
+            default -> " / ";
+        };
+        var right = op.equals(" / ") ? Integer.toString(1 + random.nextInt(9)) : intExpr(size - 1);
+
+        return "(" + intExpr(1) + op + right + ")";
+    }
+
+    private String booleanExpr() {
+        return switch (random.nextInt(3)) {
+            case 0 -> intExpr(2) + " < " + intExpr(1);
+            case 1 -> booleanLocal() + " && " + intExpr(1) + " < " + intExpr(1);
+            default -> "!" + booleanLocal();
+        };
+    }
+
+    private String intLocal() {
+        return "l" + 3 * random.nextInt((options.locals + 2) / 3);
+    }
+
+    private String booleanLocal() {
+        return "l" + (3 * random.nextInt((options.locals + 1) / 3) + 1);
+    }
+
+    private String arrayLocal() {
+        return "l" + (3 * random.nextInt(options.locals / 3) + 2);
+    }
+
+    private String intField() {
+        return "f" + 3 * random.nextInt((options.fields + 2) / 3);
+    }
+
+    private static String typeOf(int index) {
+        return switch (index % 3) {
+            case 0 -> "int";
+            case 1 -> "boolean";
+            default -> "int[]";
+        };
+    }
+
+    private int paramCount(int method) {
+        return 1 + method % 3;
+    }
+
+    private void line(String text) {
+        code.append("    ".repeat(indent)).append(text).append("\n");
+    }
+
+    /**
+     * Shape of the generated program. Locals and fields are at least 3, one of each type.
+     */
+    public static class Options {
+
+        private int methods = 10;
+        private int statements = 10;
+        private int depth = 2;
+        private int locals = 6;
+        private int fields = 3;
+        private int loops = 2;
+        private int fanOut = 3;
+        private long seed = 42;
+
+        /**
+         * @return options for a program of about the given number of lines, growing the number of methods
+         */
+        public static Options forLines(int lines) {
+            // A method with the default shape takes about 50 lines
+            return new Options().setMethods(Math.max(1, lines / 50));
+        }
+
+        public Options setMethods(int methods) {
+            this.methods = methods;
+            return this;
+        }
+
+        public Options setStatements(int statements) {
+            this.statements = statements;
+            return this;
+        }
+
+        public Options setDepth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public Options setLocals(int locals) {
+            this.locals = Math.max(3, locals);
+            return this;
+        }
+
+        public Options setFields(int fields) {
+            this.fields = Math.max(3, fields);
+            return this;
+        }
+
+        public Options setLoops(int loops) {
+            this.loops = loops;
+            return this;
+        }
+
+        public Options setFanOut(int fanOut) {
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        public Options setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+}
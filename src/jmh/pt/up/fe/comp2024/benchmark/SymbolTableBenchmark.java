@@ -0,0 +1,43 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the symbol tables of the corpus, from ASTs parsed beforehand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SymbolTableBenchmark {
+
+    @Param({"cpf", "generated-1000", "generated-5000", "generated-20000"})
+    public String corpus;
+
+    private List<JmmNode> roots;
+
+    @Setup
+    public void setup() {
+        var parser = new JmmParserImpl();
+        var config = Corpus.getConfig();
+        roots = Corpus.load(corpus).stream()
+                .map(code -> parser.parse(code, config).getRootNode())
+                .toList();
+    }
+
+    @Benchmark
+    public void build(Blackhole blackhole) {
+        for (var root : roots) {
+            blackhole.consume(JmmSymbolTableBuilder.build(root));
+        }
+    }
+}
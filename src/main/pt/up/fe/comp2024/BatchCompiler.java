@@ -0,0 +1,290 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.utils.TimingReport;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many .jmm files in a single JVM, writing one Jasmin file per input.
+ * <p>
+ * Units are independent, so they are spread over a pool of '-j' workers, or over the workers of the server the batch
+ * was requested from; each unit still goes through its stages on a single thread.
+ */
+public class BatchCompiler {
+
+    private static final String JMM_EXTENSION = ".jmm";
+    private static final String JASMIN_EXTENSION = ".j";
+
+    private final Map<String, String> config;
+    private final ForkJoinPool workers;
+    private final TimingReport timings = new TimingReport();
+
+    public BatchCompiler(Map<String, String> config) {
+        this(config, null);
+    }
+
+    /**
+     * @param workers the pool the units are compiled on, shared with other batches, or null to create one of '-j'
+     *                workers for this batch
+     */
+    public BatchCompiler(Map<String, String> config, ForkJoinPool workers) {
+        this.config = config;
+        this.workers = workers;
+    }
+
+    /**
+     * @return the steps measured for each unit compiled so far, reported with '-t'
+     */
+    public TimingReport getTimings() {
+        return timings;
+    }
+
+    /**
+     * Collects the units to compile: every .jmm file below the input directory, or the input file itself, together
+     * with the files named in the input list.
+     *
+     * @return the absolute paths of the inputs, without duplicates and sorted so that runs are reproducible
+     */
+    public static List<File> collectInputs(Map<String, String> config) {
+        var inputs = new ArrayList<File>();
+
+        var inputFile = CompilerConfig.getInputFile(config);
+        if (inputFile.isPresent()) {
+            if (inputFile.get().isDirectory()) {
+                inputs.addAll(findSources(inputFile.get()));
+            } else {
+                inputs.add(inputFile.get());
+            }
+        }
+
+        var inputList = CompilerConfig.getInputList(config);
+        if (inputList.isPresent()) {
+            for (var line : SpecsIo.read(inputList.get()).split("\\R")) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                inputs.add(new File(line).getAbsoluteFile());
+            }
+        }
+
+        // A file given with '-i' may also be in the list
+        return inputs.stream()
+                .map(input -> input.toPath().toAbsolutePath().normalize().toFile())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * @return every .jmm file below the given directory
+     */
+    public static List<File> findSources(File directory) {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            return paths.filter(path -> path.toString().endsWith(JMM_EXTENSION))
+                    .filter(Files::isRegularFile)
+                    .map(Path::toFile)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list input directory '" + directory + "'", e);
+        }
+    }
+
+    public BatchSummary compileAll(List<File> inputs) {
+        var summary = new BatchSummary();
+        long start = System.nanoTime();
+
+        var sourceRoot = getSourceRoot(inputs, config);
+        List<UnitOutcome> outcomes;
+        if (workers != null) {
+            outcomes = compileOn(workers, inputs, sourceRoot);
+        } else {
+            int jobs = Math.min(CompilerConfig.getJobs(config), Math.max(inputs.size(), 1));
+            outcomes = jobs <= 1
+                    ? inputs.stream().map(input -> compileOne(input, sourceRoot)).toList()
+                    : compileParallel(inputs, sourceRoot, jobs);
+        }
+
+        // Outcomes are folded in input order, so the summary does not depend on scheduling
+        for (var outcome : outcomes) {
+            summary.addLines(outcome.lines);
+            if (outcome.failure == null) {
+                summary.addSuccess();
+            } else {
+                summary.addFailure(outcome.input, outcome.failure);
+            }
+        }
+
+        summary.setElapsedNanos(System.nanoTime() - start);
+        return summary;
+    }
+
+    private List<UnitOutcome> compileParallel(List<File> inputs, Path sourceRoot, int jobs) {
+        var pool = new ForkJoinPool(jobs);
+        try {
+            return compileOn(pool, inputs, sourceRoot);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Forks a task per unit on the pool. Called from one of its workers, as for a batch requested from the server,
+     * the worker runs units itself while waiting for the others, instead of holding a worker idle.
+     */
+    private List<UnitOutcome> compileOn(ForkJoinPool pool, List<File> inputs, Path sourceRoot) {
+        Callable<List<UnitOutcome>> batch = () -> ForkJoinTask.invokeAll(inputs.stream()
+                        .map(input -> ForkJoinTask.adapt(() -> compileOne(input, sourceRoot)))
+                        .toList())
+                .stream()
+                .map(ForkJoinTask::join)
+                .toList();
+
+        try {
+            return ForkJoinTask.getPool() == pool ? batch.call() : pool.invoke(ForkJoinTask.adapt(batch));
+        } catch (Exception e) {
+            // compileOne reports its own failures, so this is a bug
+            throw new RuntimeException("Unexpected failure while compiling batch", e);
+        }
+    }
+
+    private UnitOutcome compileOne(File input, Path sourceRoot) {
+        String code = SpecsIo.read(input);
+        long lines = code.lines().count();
+
+        try {
+            var result = new JmmCompiler(config).compile(code);
+            if (CompilerConfig.isTiming(config)) {
+                timings.add(input.getPath(), result.getSteps());
+            }
+
+            if (!result.isSuccess()) {
+                return new UnitOutcome(input, lines, result.getReports().stream()
+                        .filter(report -> report.getType() == ReportType.ERROR)
+                        .findFirst()
+                        .map(Object::toString)
+                        .orElse("no Jasmin code generated"));
+            }
+
+            SpecsIo.write(getOutputFile(input, sourceRoot, config), result.getJasminCode());
+            return new UnitOutcome(input, lines, null);
+        } catch (Exception e) {
+            return new UnitOutcome(input, lines, e.toString());
+        }
+    }
+
+    /**
+     * @return the deepest directory that contains the input directory and every input, whose layout is kept below
+     * the output directory
+     */
+    static Path getSourceRoot(List<File> inputs, Map<String, String> config) {
+        var directories = new ArrayList<Path>();
+        CompilerConfig.getInputFile(config).filter(File::isDirectory).ifPresent(dir -> directories.add(dir.toPath()));
+        inputs.forEach(input -> directories.add(input.getAbsoluteFile().toPath().getParent()));
+
+        Path root = null;
+        for (var directory : directories) {
+            var path = directory.toAbsolutePath().normalize();
+            if (root == null) {
+                root = path;
+                continue;
+            }
+            while (!path.startsWith(root)) {
+                root = root.getParent();
+            }
+        }
+
+        return root;
+    }
+
+    /**
+     * The output goes next to the input, unless an output directory is given with '-d'. There it keeps the path of
+     * the input below the source root, so that inputs with the same name in different directories do not collide.
+     */
+    static File getOutputFile(File input, Path sourceRoot, Map<String, String> config) {
+        var name = input.getName();
+        if (name.endsWith(JMM_EXTENSION)) {
+            name = name.substring(0, name.length() - JMM_EXTENSION.length());
+        }
+        name += JASMIN_EXTENSION;
+
+        var outputDir = CompilerConfig.getOutputDir(config);
+        if (outputDir.isEmpty()) {
+            return new File(input.getParentFile(), name);
+        }
+
+        var inputDir = input.getAbsoluteFile().toPath().getParent().normalize();
+        if (!inputDir.startsWith(sourceRoot)) {
+            throw new RuntimeException("Input '" + input + "' is not below the source root '" + sourceRoot + "'");
+        }
+
+        return outputDir.get().toPath().resolve(sourceRoot.relativize(inputDir)).resolve(name).toFile();
+    }
+
+    private record UnitOutcome(File input, long lines, String failure) {
+    }
+
+    /**
+     * Counters of a batch run, printed at the end as a throughput summary.
+     */
+    public static class BatchSummary {
+
+        private int compiled;
+        private long lines;
+        private long elapsedNanos;
+        private final List<String> failures = new ArrayList<>();
+
+        void addSuccess() {
+            compiled++;
+        }
+
+        void addFailure(File input, String reason) {
+            failures.add(input + ": " + reason);
+        }
+
+        void addLines(long count) {
+            lines += count;
+        }
+
+        void setElapsedNanos(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getCompiled() {
+            return compiled;
+        }
+
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        public String format() {
+            var builder = new StringBuilder();
+            for (var failure : failures) {
+                builder.append("FAILED ").append(failure).append("\n");
+            }
+
+            int total = compiled + failures.size();
+            double seconds = elapsedNanos / 1e9;
+            builder.append(String.format("Compiled %d of %d files (%d failed) in %.3f s: %.1f files/s, %.0f lines/s",
+                    compiled, total, failures.size(), seconds,
+                    seconds > 0 ? total / seconds : 0.0,
+                    seconds > 0 ? lines / seconds : 0.0));
+
+            return builder.toString();
+        }
+    }
+}
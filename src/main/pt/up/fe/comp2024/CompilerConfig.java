@@ -1,6 +1,9 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.comp2024.utils.Log;
+
 import java.io.File;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -10,6 +13,22 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String INPUT_LIST = "inputList";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String JOBS = "jobs";
+    private static final String SERVER = "server";
+    private static final String CACHE_DIR = "cacheDir";
+    private static final String CACHE_SIZE = "cacheSize";
+    private static final String TIMING = "timing";
+    private static final String LOG_LEVEL = "logLevel";
+    private static final String LOG_FILE = "logFile";
+    private static final String PARSER = "parser";
+    private static final String DFA_LIMIT = "dfaLimit";
+    private static final String PREWARM = "prewarm";
+    private static final String AST = "ast";
+    private static final String ANALYSIS = "analysis";
+
+    private static final long DEFAULT_CACHE_SIZE_MB = 256;
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +37,20 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("f", CompilerConfig.INPUT_LIST);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("j", CompilerConfig.JOBS);
+        shortToLong.put("s", CompilerConfig.SERVER);
+        shortToLong.put("c", CompilerConfig.CACHE_DIR);
+        shortToLong.put("m", CompilerConfig.CACHE_SIZE);
+        shortToLong.put("t", CompilerConfig.TIMING);
+        shortToLong.put("l", CompilerConfig.LOG_LEVEL);
+        shortToLong.put("g", CompilerConfig.LOG_FILE);
+        shortToLong.put("p", CompilerConfig.PARSER);
+        shortToLong.put("a", CompilerConfig.DFA_LIMIT);
+        shortToLong.put("w", CompilerConfig.PREWARM);
+        shortToLong.put("b", CompilerConfig.AST);
+        shortToLong.put("n", CompilerConfig.ANALYSIS);
     }
 
 
@@ -32,6 +65,155 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    public static Optional<File> getInputList(Map<String, String> config) {
+        return Optional.ofNullable(config.get(INPUT_LIST)).map(File::new);
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        return Optional.ofNullable(config.get(OUTPUT_DIR)).map(File::new);
+    }
+
+    /**
+     * @return true if more than one unit is compiled, i.e. the input is a directory or a list of files
+     */
+    public static boolean isBatch(Map<String, String> config) {
+        return config.containsKey(INPUT_LIST) || getInputFile(config).map(File::isDirectory).orElse(false);
+    }
+
+    /**
+     * @return number of units compiled concurrently in batch mode, defaults to the number of available processors
+     */
+    public static int getJobs(Map<String, String> config) {
+        var jobs = config.get(JOBS);
+        if (jobs == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return Integer.parseInt(jobs);
+    }
+
+    public static boolean isServer(Map<String, String> config) {
+        return config.containsKey(SERVER);
+    }
+
+    /**
+     * @return the options of the server that apply to each of its requests, all but those that start it and the
+     * inputs
+     */
+    public static Map<String, String> getRequestDefaults(Map<String, String> serverConfig) {
+        var defaults = new HashMap<>(serverConfig);
+        defaults.remove(SERVER);
+        defaults.remove(PREWARM);
+        defaults.remove(INPUT_FILE);
+        defaults.remove(INPUT_LIST);
+        return defaults;
+    }
+
+    /**
+     * @return the path of the Unix socket the server listens on, or empty if requests are read from stdin
+     */
+    public static Optional<String> getServerSocket(Map<String, String> config) {
+        return Optional.ofNullable(config.get(SERVER)).filter(value -> !value.equals("true"));
+    }
+
+    public static Optional<Path> getCacheDir(Map<String, String> config) {
+        return Optional.ofNullable(config.get(CACHE_DIR)).map(Path::of);
+    }
+
+    /**
+     * @return maximum size of the compilation cache in bytes, given in megabytes with '-m'
+     */
+    public static long getCacheSize(Map<String, String> config) {
+        var megabytes = Optional.ofNullable(config.get(CACHE_SIZE)).map(Long::parseLong).orElse(DEFAULT_CACHE_SIZE_MB);
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * @return the options that change the generated code, and therefore take part in the cache key
+     */
+    public static Map<String, String> getCodegenOptions(Map<String, String> config) {
+        var options = new HashMap<String, String>();
+        options.put(OPTIMIZE, String.valueOf(config.get(OPTIMIZE)));
+        options.put(REGISTER, String.valueOf(config.get(REGISTER)));
+        return options;
+    }
+
+    public static boolean isTiming(Map<String, String> config) {
+        return config.containsKey(TIMING);
+    }
+
+    /**
+     * @return the file the timing report is written to, or empty if it goes to stderr
+     */
+    public static Optional<String> getTimingFile(Map<String, String> config) {
+        return Optional.ofNullable(config.get(TIMING)).filter(value -> !value.equals("true"));
+    }
+
+    /**
+     * @return level of the diagnostic messages, info unless given with '-l'
+     */
+    public static Log.Level getLogLevel(Map<String, String> config) {
+        return Optional.ofNullable(config.get(LOG_LEVEL)).map(Log.Level::fromString).orElse(Log.Level.INFO);
+    }
+
+    /**
+     * @return the file diagnostic messages are appended to, or empty if they go to stderr
+     */
+    public static Optional<File> getLogFile(Map<String, String> config) {
+        return Optional.ofNullable(config.get(LOG_FILE)).map(File::new);
+    }
+
+    /**
+     * @return true if inputs are parsed with SLL first, falling back to LL only if it fails; '-p=ll' always uses LL
+     */
+    public static boolean isTwoStageParsing(Map<String, String> config) {
+        var parser = config.getOrDefault(PARSER, "sll");
+        if (!parser.equals("sll") && !parser.equals("ll")) {
+            throw new RuntimeException("Unknown parser mode '" + parser + "', expected sll or ll");
+        }
+
+        return parser.equals("sll");
+    }
+
+    /**
+     * @return maximum number of states of the parser DFA before it is cleared, if given with '-a'
+     */
+    public static Optional<Integer> getDfaLimit(Map<String, String> config) {
+        return Optional.ofNullable(config.get(DFA_LIMIT)).map(Integer::parseInt);
+    }
+
+    /**
+     * @return directory with the .jmm files parsed at startup to warm up the parser, if given with '-w'
+     */
+    public static Optional<File> getPrewarmDir(Map<String, String> config) {
+        return Optional.ofNullable(config.get(PREWARM)).map(File::new);
+    }
+
+    /**
+     * @return true if the AST is built with the typed builder instead of the generic ANTLR conversion, with '-b=typed'
+     */
+    public static boolean isTypedAst(Map<String, String> config) {
+        var ast = config.getOrDefault(AST, "generic");
+        if (!ast.equals("generic") && !ast.equals("typed")) {
+            throw new RuntimeException("Unknown AST builder '" + ast + "', expected generic or typed");
+        }
+
+        return ast.equals("typed");
+    }
+
+    /**
+     * @return true if the methods of the class are analyzed concurrently, with '-n=parallel', instead of in a single
+     * fused traversal
+     */
+    public static boolean isParallelAnalysis(Map<String, String> config) {
+        var analysis = config.getOrDefault(ANALYSIS, "fused");
+        if (!analysis.equals("fused") && !analysis.equals("parallel")) {
+            throw new RuntimeException("Unknown analysis mode '" + analysis + "', expected fused or parallel");
+        }
+
+        return analysis.equals("parallel");
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
@@ -64,7 +246,15 @@ public class CompilerConfig {
     public static Map<String, String> parseArgs(String[] args) {
 
         // default options for config
-        var config = getDefault();
+        return parseArgs(args, getDefault());
+    }
+
+    /**
+     * @param defaults the options used unless the arguments give them, e.g. those the server was started with
+     */
+    public static Map<String, String> parseArgs(String[] args, Map<String, String> defaults) {
+
+        var config = new HashMap<>(defaults);
 
         for (String arg : args) {
 
@@ -89,23 +279,52 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
-        if (!config.containsKey(INPUT_FILE)) {
+        // the server receives its inputs with each request
+        if (isServer(config)) {
+            getJobs(config);
+            getCacheSize(config);
+            getLogLevel(config);
+            isTwoStageParsing(config);
+            getDfaLimit(config);
+            isTypedAst(config);
+            isParallelAnalysis(config);
+            return config;
+        }
+
+        if (!config.containsKey(INPUT_FILE) && !config.containsKey(INPUT_LIST)) {
 
             throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
         }
 
-        // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
+        // make sure we save the absolute path of the input file or directory
+        if (config.containsKey(INPUT_FILE)) {
+            var inputFile = new File(config.get(INPUT_FILE));
+            if (!inputFile.exists()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
+
+            config.put(INPUT_FILE, inputFile.getAbsolutePath());
         }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+        if (config.containsKey(INPUT_LIST)) {
+            var inputList = new File(config.get(INPUT_LIST));
+            if (!inputList.isFile()) {
+                throw new RuntimeException("Could not find input list '" + inputList + "'");
+            }
+
+            config.put(INPUT_LIST, inputList.getAbsolutePath());
+        }
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getJobs(config);
+        getCacheSize(config);
+        getLogLevel(config);
+        isTwoStageParsing(config);
+        getDfaLimit(config);
+        isTypedAst(config);
+        isParallelAnalysis(config);
 
         return config;
     }
@@ -0,0 +1,339 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import pt.up.fe.comp2024.utils.Instrumentation;
+import pt.up.fe.comp2024.utils.Log;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running compiler that keeps the JVM, the ANTLR caches and the JIT-compiled passes warm between requests.
+ * <p>
+ * Each request is one line with the same options as the command line (e.g. {@code -i=Foo.jmm -o -d=out}; paths
+ * cannot contain spaces) and gets one JSON line back with the reports and the wall time of each stage, plus every
+ * measured step if the request has '-t'. A line with {@code quit} stops the server.
+ * <p>
+ * With {@code -s} requests are read from stdin and may be answered out of order (the response carries the number of
+ * the request line as "id"); with {@code -s=<path>} the server listens on a Unix socket and answers the requests of a
+ * connection in order. Either way, requests are compiled on '-j' workers, so an idle connection holds none of them,
+ * and so are the units of batch requests. The options the server is started with, such as '-c' or '-o', apply to
+ * every request that does not give them.
+ * <p>
+ * A {@code quit} on a socket stops accepting connections and ends the input of the open ones, whose requests already
+ * received are still answered. The pending requests of a client that disconnects are dropped.
+ */
+public class CompilerServer {
+
+    private static final String QUIT = "quit";
+
+    private static final Future<String> END_OF_REQUESTS = CompletableFuture.completedFuture(null);
+
+    private final Map<String, String> config;
+    private final Map<String, String> requestDefaults;
+    private final ForkJoinPool workers;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+    private final Gson gson = new Gson();
+    private volatile ServerSocketChannel server;
+
+    public CompilerServer(Map<String, String> config) {
+        this.config = config;
+        this.requestDefaults = CompilerConfig.getRequestDefaults(config);
+        this.workers = new ForkJoinPool(CompilerConfig.getJobs(config));
+    }
+
+    public void run() {
+        // Stdout is reserved for responses, anything else printed goes to stderr
+        var responses = System.out;
+        System.setOut(System.err);
+
+        try {
+            var socket = CompilerConfig.getServerSocket(config);
+            if (socket.isPresent()) {
+                serveSocket(Path.of(socket.get()));
+            } else {
+                serveStdin(responses);
+            }
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private void serveStdin(PrintStream responses) {
+        var reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        try {
+            int id = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (line.strip().equals(QUIT)) {
+                    break;
+                }
+
+                int requestId = id++;
+                var request = line;
+                workers.submit(() -> {
+                    var response = handle(requestId, request);
+                    synchronized (responses) {
+                        responses.println(response);
+                        responses.flush();
+                    }
+                });
+            }
+
+            // Answer the pending requests before exiting
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read requests from stdin", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serveSocket(Path socketPath) {
+        try (var channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server = channel;
+            Files.deleteIfExists(socketPath);
+            channel.bind(UnixDomainSocketAddress.of(socketPath));
+            Log.info("Listening on " + socketPath);
+
+            while (true) {
+                var client = channel.accept();
+                clients.add(client);
+
+                // Requests are compiled concurrently, but answered in order
+                var responses = new LinkedBlockingQueue<Future<String>>();
+                connections.submit(() -> readRequests(client, responses));
+                connections.submit(() -> writeResponses(client, responses));
+            }
+        } catch (AsynchronousCloseException e) {
+            // a client asked the server to quit
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on socket '" + socketPath + "'", e);
+        } finally {
+            closeClients();
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException e) {
+                // nothing left to clean up
+            }
+        }
+    }
+
+    /**
+     * Ends the input of every open connection and waits until the requests received from them are answered.
+     */
+    private void closeClients() {
+        for (var client : clients) {
+            try {
+                client.shutdownInput();
+            } catch (IOException e) {
+                // already closed by the client
+            }
+        }
+
+        connections.shutdown();
+        try {
+            connections.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compiles each request of a connection on the workers, until the client closes its side or asks to quit.
+     */
+    private void readRequests(SocketChannel client, BlockingQueue<Future<String>> responses) {
+        // Not closed here, since closing the reader closes the channel the responses are written to. Unlike the
+        // streams of a channel, its readers and writers do not hold its blocking lock while waiting for input
+        var reader = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+
+        try {
+            int id = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (line.strip().equals(QUIT)) {
+                    stopAccepting();
+                    break;
+                }
+
+                responses.add(submit(id++, line));
+            }
+        } catch (IOException e) {
+            Log.warn("Connection closed: " + e.getMessage());
+        } finally {
+            responses.add(END_OF_REQUESTS);
+        }
+    }
+
+    /**
+     * Writes the responses of a connection in the order its requests were received, then closes it.
+     */
+    private void writeResponses(SocketChannel client, BlockingQueue<Future<String>> responses) {
+        try (client; var writer = new PrintWriter(Channels.newWriter(client, StandardCharsets.UTF_8), true)) {
+            int id = 0;
+            Future<String> response;
+            while ((response = responses.take()) != END_OF_REQUESTS) {
+                writer.println(getResponse(id++, response));
+
+                // A PrintWriter does not throw, the client may have disconnected
+                if (writer.checkError()) {
+                    Log.warn("Connection closed by the client, dropping its pending requests");
+                    dropPending(responses);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            Log.warn("Connection closed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private String getResponse(int id, Future<String> response) throws InterruptedException {
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            // handle reports its own failures, so this is a bug, but the client still gets an answer
+            Log.error("Unexpected failure while answering request " + id + ": " + e.getCause());
+            return newError(id, "Unexpected failure: " + e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the requests of a connection that are not compiled yet, until the reader of the connection stops.
+     */
+    private static void dropPending(BlockingQueue<Future<String>> responses) throws InterruptedException {
+        Future<String> response;
+        while ((response = responses.take()) != END_OF_REQUESTS) {
+            response.cancel(false);
+        }
+    }
+
+    private void stopAccepting() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            Log.warn("Could not close socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the future response of the request, compiled on one of the workers unless the server is shutting down
+     */
+    private Future<String> submit(int id, String request) {
+        try {
+            return workers.submit(() -> handle(id, request));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(newError(id, "The server is shutting down"));
+        }
+    }
+
+    private String newError(int id, String error) {
+        var response = new JsonObject();
+        response.addProperty("id", id);
+        response.addProperty("success", false);
+        response.addProperty("error", error);
+        return gson.toJson(response);
+    }
+
+    /**
+     * Compiles the unit(s) of a single request.
+     *
+     * @return the JSON response, in a single line
+     */
+    String handle(int id, String request) {
+        var response = new JsonObject();
+        response.addProperty("id", id);
+        long start = System.nanoTime();
+
+        try {
+            var requestConfig = CompilerConfig.parseArgs(request.strip().split("\\s+"), requestDefaults);
+            if (CompilerConfig.isServer(requestConfig)) {
+                throw new RuntimeException("Option '-s' is not allowed in a request");
+            }
+
+            if (CompilerConfig.isBatch(requestConfig)) {
+                var summary = new BatchCompiler(requestConfig, workers)
+                        .compileAll(BatchCompiler.collectInputs(requestConfig));
+                response.addProperty("success", summary.getFailures().isEmpty());
+                response.addProperty("summary", summary.format());
+            } else {
+                handleUnit(CompilerConfig.getInputFile(requestConfig).orElseThrow(), requestConfig, response);
+            }
+        } catch (Exception e) {
+            response.addProperty("success", false);
+            response.addProperty("error", e.toString());
+        }
+
+        response.addProperty("totalMs", (System.nanoTime() - start) / 1e6);
+        return gson.toJson(response);
+    }
+
+    private void handleUnit(File input, Map<String, String> requestConfig, JsonObject response) {
+        response.addProperty("input", input.getPath());
+
+        var result = new JmmCompiler(requestConfig).compile(SpecsIo.read(input));
+
+        if (result.isSuccess()) {
+            var output = BatchCompiler.getOutputFile(input, BatchCompiler.getSourceRoot(List.of(input), requestConfig),
+                    requestConfig);
+            SpecsIo.write(output, result.getJasminCode());
+            response.addProperty("output", output.getPath());
+        }
+        response.addProperty("success", result.isSuccess());
+
+        var reports = new JsonArray();
+        result.getReports().forEach(report -> reports.add(report.toString()));
+        response.add("reports", reports);
+
+        var stages = new JsonObject();
+        result.getStageNanos().forEach((stage, nanos) -> stages.addProperty(stage, nanos / 1e6));
+        response.add("stagesMs", stages);
+
+        if (CompilerConfig.isTiming(requestConfig)) {
+            response.add("steps", Instrumentation.toJson(result.getSteps()));
+        }
+    }
+}
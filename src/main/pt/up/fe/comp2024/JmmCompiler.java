@@ -0,0 +1,156 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.cache.CompilationCache;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.Instrumentation;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the whole compilation pipeline (parse, semantic analysis, OLLIR and Jasmin generation) for a single unit.
+ * <p>
+ * Stops at the first stage that reports errors, so the result holds the code of every stage that completed. When a
+ * cache directory is given with '-c', units compiled before with the same options skip every stage. The stages, and
+ * the steps inside them, are measured with {@link Instrumentation}.
+ */
+public class JmmCompiler {
+
+    private final Map<String, String> config;
+
+    public JmmCompiler(Map<String, String> config) {
+        this.config = config;
+    }
+
+    public CompilationResult compile(String code) {
+        try (var instrumentation = Instrumentation.begin()) {
+            var result = compileCached(code);
+            return new CompilationResult(result.getReports(), result.getOllirCode(), result.getJasminCode(),
+                    instrumentation.getSteps());
+        }
+    }
+
+    private CompilationResult compileCached(String code) {
+
+        var cacheDir = CompilerConfig.getCacheDir(config);
+        if (cacheDir.isEmpty()) {
+            return compileUncached(code);
+        }
+
+        var cache = CompilationCache.forDirectory(cacheDir.get(), CompilerConfig.getCacheSize(config));
+        var key = CompilationCache.key(code, CompilerConfig.getCodegenOptions(config));
+
+        var cached = Instrumentation.measure("cache", () -> cache.get(key));
+        if (cached.isPresent()) {
+            return new CompilationResult(cached.get().reports(), cached.get().ollirCode(), cached.get().jasminCode(),
+                    List.of());
+        }
+
+        var result = compileUncached(code);
+
+        // Units with errors are not cached, so that their reports are produced again
+        if (result.isSuccess()) {
+            cache.put(key, result.getOllirCode(), result.getJasminCode(), result.getReports());
+        }
+
+        return result;
+    }
+
+    private CompilationResult compileUncached(String code) {
+
+        // Parsing stage
+        JmmParserImpl parser = new JmmParserImpl();
+        JmmParserResult parserResult = Instrumentation.measure("parse", () -> parser.parse(code, config));
+        if (ReportUtils.anyError(parserResult.getReports())) {
+            return new CompilationResult(parserResult.getReports(), null, null, List.of());
+        }
+
+        // Semantic Analysis stage
+        JmmAnalysisImpl sema = new JmmAnalysisImpl();
+        JmmSemanticsResult semanticsResult = Instrumentation.measure("analysis",
+                () -> sema.semanticAnalysis(parserResult));
+        if (ReportUtils.anyError(semanticsResult.getReports())) {
+            return new CompilationResult(semanticsResult.getReports(), null, null, List.of());
+        }
+
+        // Optimization stage
+        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
+        OllirResult ollirResult = Instrumentation.measure("ollir", () -> {
+            var generated = Instrumentation.measure("generate", () -> ollirGen.toOllir(semanticsResult));
+            return Instrumentation.measure("optimize", () -> ollirGen.optimize(generated));
+        });
+        if (ReportUtils.anyError(ollirResult.getReports())) {
+            return new CompilationResult(ollirResult.getReports(), ollirResult.getOllirCode(), null, List.of());
+        }
+
+        // Code generation stage
+        JasminBackendImpl jasminGen = new JasminBackendImpl();
+        JasminResult jasminResult = Instrumentation.measure("jasmin", () -> jasminGen.toJasmin(ollirResult));
+
+        return new CompilationResult(jasminResult.getReports(), ollirResult.getOllirCode(),
+                jasminResult.getJasminCode(), List.of());
+    }
+
+    /**
+     * Outcome of compiling a single unit.
+     */
+    public static class CompilationResult {
+
+        private final List<Report> reports;
+        private final String ollirCode;
+        private final String jasminCode;
+        private final List<Instrumentation.Step> steps;
+
+        public CompilationResult(List<Report> reports, String ollirCode, String jasminCode,
+                                 List<Instrumentation.Step> steps) {
+            this.reports = reports;
+            this.ollirCode = ollirCode;
+            this.jasminCode = jasminCode;
+            this.steps = steps;
+        }
+
+        public List<Report> getReports() {
+            return reports;
+        }
+
+        public String getOllirCode() {
+            return ollirCode;
+        }
+
+        public String getJasminCode() {
+            return jasminCode;
+        }
+
+        /**
+         * @return the measured steps in the order they started, each stage before the steps inside it
+         */
+        public List<Instrumentation.Step> getSteps() {
+            return steps;
+        }
+
+        /**
+         * @return wall time of each stage that ran, in nanoseconds and in pipeline order
+         */
+        public Map<String, Long> getStageNanos() {
+            var stageNanos = new LinkedHashMap<String, Long>();
+            steps.stream()
+                    .filter(Instrumentation.Step::isStage)
+                    .forEach(step -> stageNanos.put(step.name(), step.wallNanos()));
+            return stageNanos;
+        }
+
+        public boolean isSuccess() {
+            return jasminCode != null && !ReportUtils.anyError(reports);
+        }
+    }
+}
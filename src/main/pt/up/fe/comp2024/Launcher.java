@@ -1,14 +1,9 @@
 package pt.up.fe.comp2024;
 
 import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.ParserPool;
+import pt.up.fe.comp2024.utils.Log;
+import pt.up.fe.comp2024.utils.TimingReport;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
@@ -20,42 +15,61 @@ public class Launcher {
         SpecsSystem.programStandardInit();
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
+        Log.configure(CompilerConfig.getLogLevel(config), CompilerConfig.getLogFile(config).orElse(null));
 
-        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
+        configureParser(config);
+
+        // Server mode, compiles the units sent by clients until asked to quit
+        if (CompilerConfig.isServer(config)) {
+            new CompilerServer(config).run();
+            return;
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
+        // Batch mode, compiles every unit in this JVM
+        if (CompilerConfig.isBatch(config)) {
+            var batch = new BatchCompiler(config);
+            var summary = batch.compileAll(BatchCompiler.collectInputs(config));
+            System.out.println(summary.format());
 
-        // Print AST
-        //System.out.println(parserResult.getRootNode().toTree());
+            if (CompilerConfig.isTiming(config)) {
+                batch.getTimings().write(CompilerConfig.getTimingFile(config).orElse(null));
+            }
 
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+            if (!summary.getFailures().isEmpty()) {
+                System.exit(1);
+            }
+            return;
+        }
 
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        if (!inputFile.isFile()) {
+            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
+        }
+        String code = SpecsIo.read(inputFile);
 
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        // Same pipeline as each unit of a batch, stopping at the first stage with errors
+        var result = new JmmCompiler(config).compile(code);
+        TestUtils.noErrors(result.getReports());
 
-        // Print OLLIR code
-        //System.out.println(ollirResult.getOllirCode());
+        if (CompilerConfig.isTiming(config)) {
+            var report = new TimingReport();
+            report.add(inputFile.getPath(), result.getSteps());
+            report.write(CompilerConfig.getTimingFile(config).orElse(null));
+        }
+    }
 
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+    /**
+     * The parser caches are shared by every unit compiled in this JVM, so they are set up once, before the first unit.
+     */
+    private static void configureParser(Map<String, String> config) {
+        var pool = ParserPool.get();
+        CompilerConfig.getDfaLimit(config).ifPresent(pool::setMaxDfaStates);
 
-        // Print Jasmin code
-        //System.out.println(jasminResult.getJasminCode());
+        var prewarmDir = CompilerConfig.getPrewarmDir(config);
+        if (prewarmDir.isPresent()) {
+            var sources = BatchCompiler.findSources(prewarmDir.get()).stream().map(SpecsIo::read).toList();
+            pool.prewarm(sources, config);
+        }
     }
 
 }
@@ -20,4 +20,13 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
+    /**
+     * Passes that must run before this one and report no errors, otherwise this pass is skipped.
+     *
+     * @return the classes of the passes this pass depends on
+     */
+    default List<Class<? extends AnalysisPass>> getDependencies() {
+        return List.of();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.FusedAnalysis.PassOutcome;
+import pt.up.fe.comp2024.utils.Log;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Runs the analysis passes in the order given by their {@link AnalysisPass#getDependencies() dependencies}.
+ * <p>
+ * The passes are split in levels, each pass one level after the last of its dependencies, and the passes of a level
+ * run together, fused in a single traversal or with the methods analyzed concurrently. A pass whose dependency
+ * reported errors, threw, or was itself skipped, is not run, since its checks would only fail on what the dependency
+ * already reported, and a log report says it was skipped.
+ * <p>
+ * Reports come out in the order of the passes, or sorted by position if the methods are analyzed concurrently.
+ */
+public class AnalysisScheduler {
+
+    private final Supplier<List<AnalysisPass>> passes;
+    private final boolean parallel;
+
+    /**
+     * @param passes   creates new instances of the passes
+     * @param parallel if the methods are analyzed concurrently, by {@link ParallelAnalysis}
+     */
+    public AnalysisScheduler(Supplier<List<AnalysisPass>> passes, boolean parallel) {
+        this.passes = passes;
+        this.parallel = parallel;
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        var instances = passes.get();
+
+        var reports = new HashMap<Class<?>, List<Report>>();
+        var failed = new HashSet<Class<?>>();
+        for (var level : getLevels(instances)) {
+            var ready = new ArrayList<AnalysisPass>();
+            for (var pass : level) {
+                var failedDependency = getFailedDependency(pass, failed);
+                if (failedDependency == null) {
+                    ready.add(pass);
+                    continue;
+                }
+
+                Log.debug(() -> "Skipping analysis pass " + pass.getClass().getSimpleName() + ", "
+                        + failedDependency.getSimpleName() + " failed");
+                reports.put(pass.getClass(), List.of(newSkipped(pass, failedDependency)));
+                failed.add(pass.getClass());
+            }
+
+            for (var outcome : analyzeLevel(ready, root, table)) {
+                var passClass = outcome.pass().getClass();
+                reports.put(passClass, outcome.getReports());
+                if (outcome.failure() != null || ReportUtils.anyError(outcome.reports())) {
+                    failed.add(passClass);
+                }
+            }
+        }
+
+        var ordered = new ArrayList<Report>();
+        for (var pass : instances) {
+            ordered.addAll(reports.get(pass.getClass()));
+        }
+        if (parallel) {
+            ordered.sort(ParallelAnalysis.BY_POSITION);
+        }
+
+        return ordered;
+    }
+
+    private List<PassOutcome> analyzeLevel(List<AnalysisPass> level, JmmNode root, SymbolTable table) {
+        if (level.isEmpty()) {
+            return List.of();
+        }
+
+        if (!parallel) {
+            return new FusedAnalysis(level).analyzePasses(List.of(root), table, node -> false, true);
+        }
+
+        // Each batch of methods needs its own instances of the passes of the level
+        var classes = level.stream().map(Object::getClass).toList();
+        return new ParallelAnalysis(() -> passes.get().stream()
+                .filter(pass -> classes.contains(pass.getClass()))
+                .toList())
+                .analyzePasses(root, table);
+    }
+
+    private static Class<? extends AnalysisPass> getFailedDependency(AnalysisPass pass, Set<Class<?>> failed) {
+        for (var dependency : pass.getDependencies()) {
+            if (failed.contains(dependency)) {
+                return dependency;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the passes split in levels, each pass after all of its dependencies, in the order of the passes
+     */
+    static List<List<AnalysisPass>> getLevels(List<AnalysisPass> passes) {
+        var byClass = new HashMap<Class<?>, AnalysisPass>();
+        for (var pass : passes) {
+            byClass.put(pass.getClass(), pass);
+        }
+
+        var depths = new HashMap<AnalysisPass, Integer>();
+        var levels = new ArrayList<List<AnalysisPass>>();
+        for (var pass : passes) {
+            int depth = getDepth(pass, byClass, depths, new HashSet<>());
+            while (levels.size() <= depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).add(pass);
+        }
+
+        return levels;
+    }
+
+    private static int getDepth(AnalysisPass pass, Map<Class<?>, AnalysisPass> byClass,
+                                Map<AnalysisPass, Integer> depths, Set<AnalysisPass> visiting) {
+        var known = depths.get(pass);
+        if (known != null) {
+            return known;
+        }
+
+        if (!visiting.add(pass)) {
+            throw new RuntimeException("Analysis pass '" + pass.getClass() + "' depends on itself");
+        }
+
+        int depth = 0;
+        for (var dependencyClass : pass.getDependencies()) {
+            var dependency = byClass.get(dependencyClass);
+            if (dependency == null) {
+                throw new RuntimeException("Analysis pass '" + pass.getClass() + "' depends on '" + dependencyClass
+                        + "', which is not one of the passes");
+            }
+
+            depth = Math.max(depth, getDepth(dependency, byClass, depths, visiting) + 1);
+        }
+
+        depths.put(pass, depth);
+        return depth;
+    }
+
+    private static Report newSkipped(AnalysisPass pass, Class<? extends AnalysisPass> dependency) {
+        return Report.newLog(Stage.SEMANTIC,
+                -1,
+                -1,
+                "Skipped analysis pass '" + pass.getClass() + "', pass '" + dependency + "' it depends on failed",
+                null);
+    }
+}
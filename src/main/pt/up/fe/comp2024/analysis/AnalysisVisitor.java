@@ -38,4 +38,12 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         // Return reports
         return getReports();
     }
+
+    /**
+     * Applies the visit method of this pass to the node alone, without visiting its children, so that
+     * {@link FusedAnalysis} can run several passes in one traversal.
+     */
+    void visitNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
+    }
 }
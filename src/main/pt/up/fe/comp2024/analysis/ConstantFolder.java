@@ -0,0 +1,247 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.typed.TypedNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Folds expressions whose operands are literals, simplifies algebraic identities and removes parentheses.
+ * <p>
+ * The whole tree is folded once, bottom-up, so a constant subtree collapses in a single visit. Afterwards only the
+ * parents of the expressions that changed elsewhere, e.g. variables replaced by their constant value, are examined
+ * again, through a worklist.
+ * <p>
+ * Identities that drop an operand, such as x * 0, only apply if the operand has no side effects and cannot throw.
+ */
+public class ConstantFolder {
+
+    private final Deque<JmmNode> worklist = new ArrayDeque<>();
+    private boolean changed;
+
+    /**
+     * Folds every expression of the tree, children before parents.
+     *
+     * @return true if any expression was folded since the folder was created
+     */
+    public boolean foldTree(JmmNode node) {
+        for (var child : node.getChildren()) {
+            foldTree(child);
+        }
+
+        if (isFoldable(node)) {
+            foldAndReplace(node);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Adds the expression the node is an operand of, after the node changed.
+     */
+    public void addParentOf(JmmNode node) {
+        var parent = node.getParent();
+        if (parent != null && isFoldable(parent)) {
+            worklist.add(parent);
+        }
+    }
+
+    /**
+     * Folds the expressions in the worklist until it is empty.
+     *
+     * @return true if any expression was folded since the folder was created
+     */
+    public boolean fold() {
+        while (!worklist.isEmpty()) {
+            var node = worklist.poll();
+
+            // Already folded, or removed from the tree
+            if (node.getParent() == null) {
+                continue;
+            }
+
+            var folded = foldAndReplace(node);
+            if (folded != null) {
+                addParentOf(folded);
+            }
+        }
+
+        return changed;
+    }
+
+    private static boolean isFoldable(JmmNode node) {
+        return Kind.BINARY_EXPR.check(node) || Kind.PAREN_EXPR.check(node);
+    }
+
+    /**
+     * @return the node that took the place of the expression, or null if it could not be simplified
+     */
+    private JmmNode foldAndReplace(JmmNode node) {
+        var folded = Kind.PAREN_EXPR.check(node) ? node.getChild(0) : foldBinary(node);
+        if (folded == null) {
+            return null;
+        }
+
+        // An operand that is kept is moved out of the expression, instead of being copied
+        if (folded.getParent() != null) {
+            folded.getParent().removeChild(folded);
+        }
+
+        node.replace(folded);
+        changed = true;
+        return folded;
+    }
+
+    /**
+     * @return the literal with the value of the expression, the operand it simplifies to, or null if it does not
+     * simplify
+     */
+    private static JmmNode foldBinary(JmmNode node) {
+        var left = node.getChild(0);
+        var op = node.get("op");
+
+        if (op.equals("!")) {
+            if (Kind.BOOLEAN_LITERAL.check(left)) {
+                return newBoolean(node, !booleanValue(left));
+            }
+
+            // !!x
+            if (Kind.BINARY_EXPR.check(left) && left.get("op").equals("!")) {
+                return left.getChild(0);
+            }
+
+            return null;
+        }
+
+        var right = node.getChild(1);
+        if (op.equals("&&")) {
+            return foldAnd(left, right);
+        }
+
+        if (Kind.INTEGER_LITERAL.check(left) && Kind.INTEGER_LITERAL.check(right)) {
+            var leftValue = intValue(left);
+            var rightValue = intValue(right);
+            return switch (op) {
+                case "+" -> newInteger(node, leftValue + rightValue);
+                case "-" -> newInteger(node, leftValue - rightValue);
+                case "*" -> newInteger(node, leftValue * rightValue);
+                // Division by zero is left to throw at run time
+                case "/" -> rightValue == 0 ? null : newInteger(node, leftValue / rightValue);
+                case "<" -> newBoolean(node, leftValue < rightValue);
+                default -> null;
+            };
+        }
+
+        return switch (op) {
+            // x + 0, 0 + x
+            case "+" -> isInteger(right, 0) ? left : isInteger(left, 0) ? right : null;
+            // x - 0
+            case "-" -> isInteger(right, 0) ? left : null;
+            // x * 1, 1 * x, x * 0, 0 * x
+            case "*" -> {
+                if (isInteger(right, 1)) {
+                    yield left;
+                }
+                if (isInteger(left, 1)) {
+                    yield right;
+                }
+                if ((isInteger(right, 0) && isPure(left)) || (isInteger(left, 0) && isPure(right))) {
+                    yield newInteger(node, 0);
+                }
+                yield null;
+            }
+            // x / 1
+            case "/" -> isInteger(right, 1) ? left : null;
+            default -> null;
+        };
+    }
+
+    private static JmmNode foldAnd(JmmNode left, JmmNode right) {
+        if (Kind.BOOLEAN_LITERAL.check(left)) {
+            // true && x, false && x, the right side is not evaluated if the left is false
+            return booleanValue(left) ? right : left;
+        }
+
+        if (Kind.BOOLEAN_LITERAL.check(right)) {
+            // x && true, x && false
+            if (booleanValue(right)) {
+                return left;
+            }
+            return isPure(left) ? right : null;
+        }
+
+        return null;
+    }
+
+    private static boolean isInteger(JmmNode node, int value) {
+        return Kind.INTEGER_LITERAL.check(node) && intValue(node) == value;
+    }
+
+    /**
+     * @return true if evaluating the expression has no side effects and cannot throw, so it can be dropped
+     */
+    public static boolean isPure(JmmNode node) {
+        if (Kind.INTEGER_LITERAL.check(node) || Kind.BOOLEAN_LITERAL.check(node) || Kind.VAR_REF_EXPR.check(node)
+                || Kind.THIS_EXPR.check(node)) {
+            return true;
+        }
+
+        if (Kind.PAREN_EXPR.check(node)) {
+            return isPure(node.getChild(0));
+        }
+
+        // Division may throw, on a zero divisor
+        if (Kind.BINARY_EXPR.check(node) && !node.get("op").equals("/")) {
+            return node.getChildren().stream().allMatch(ConstantFolder::isPure);
+        }
+
+        return false;
+    }
+
+    /**
+     * The literals are read through the typed nodes when the tree was built with the typed builder.
+     */
+    private static int intValue(JmmNode literal) {
+        if (literal instanceof TypedNode.IntegerLiteral typed) {
+            return typed.getValue();
+        }
+
+        return Integer.parseInt(literal.get("value"));
+    }
+
+    private static boolean booleanValue(JmmNode literal) {
+        if (literal instanceof TypedNode.BooleanLiteral typed) {
+            return typed.getValue();
+        }
+
+        return Boolean.parseBoolean(literal.get("value"));
+    }
+
+    /**
+     * @return a new literal, which is a typed node if the expression it replaces is one
+     */
+    private static JmmNode newInteger(JmmNode expr, int value) {
+        if (expr instanceof TypedNode) {
+            return new TypedNode.IntegerLiteral(value);
+        }
+
+        return newLiteral(Kind.INTEGER_LITERAL, Integer.toString(value));
+    }
+
+    private static JmmNode newBoolean(JmmNode expr, boolean value) {
+        if (expr instanceof TypedNode) {
+            return new TypedNode.BooleanLiteral(value);
+        }
+
+        return newLiteral(Kind.BOOLEAN_LITERAL, Boolean.toString(value));
+    }
+
+    private static JmmNode newLiteral(Kind kind, String value) {
+        var literal = new JmmNodeImpl(kind.toString());
+        literal.put("value", value);
+        return literal;
+    }
+}
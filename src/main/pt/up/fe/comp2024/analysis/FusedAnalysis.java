@@ -0,0 +1,179 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.utils.Instrumentation;
+import pt.up.fe.comp2024.utils.Instrumentation.Accumulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Runs several analysis passes in a single traversal of the AST.
+ * <p>
+ * The passes are preorder visitors whose visit methods only read the tree, so applying the visit methods of every
+ * pass to each node, in a single preorder traversal, gives each pass the same calls, in the same order, as its own
+ * traversal, and each pass keeps its own state. Passes that are not visitors are run on their own.
+ * <p>
+ * Reports come out in the order of the passes. A pass that throws is not called again, and its reports are replaced
+ * by an error report, as when the passes run one after the other.
+ * <p>
+ * When the analysis is instrumented, the calls to each pass are added up in a step named after the pass, nested in the
+ * enclosing step, e.g. "analysis/passes/Types".
+ */
+public class FusedAnalysis {
+
+    private final List<AnalysisPass> passes;
+
+    public FusedAnalysis(List<AnalysisPass> passes) {
+        this.passes = passes;
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        var reports = new ArrayList<Report>();
+        for (var outcome : analyzePasses(List.of(root), table, node -> false, true)) {
+            reports.addAll(outcome.getReports());
+        }
+
+        return reports;
+    }
+
+    /**
+     * Runs the passes over each of the trees in turn, leaving out the subtrees whose root is skipped.
+     *
+     * @param standalone if the passes that are not visitors are run as well, on each whole tree
+     * @return the outcome of each pass, in the order of the passes
+     */
+    List<PassOutcome> analyzePasses(List<JmmNode> roots, SymbolTable table, Predicate<JmmNode> skip,
+                                    boolean standalone) {
+        var visitors = new ArrayList<AnalysisVisitor>();
+        for (var pass : passes) {
+            if (pass instanceof AnalysisVisitor visitor) {
+                visitors.add(visitor);
+            }
+        }
+
+        var failures = new Exception[visitors.size()];
+        var timers = getTimers(visitors);
+        try {
+            for (var root : roots) {
+                visit(root, table, visitors, failures, skip, timers);
+            }
+        } finally {
+            closeTimers(timers);
+        }
+
+        var outcomes = new ArrayList<PassOutcome>();
+        for (var pass : passes) {
+            int index = visitors.indexOf(pass);
+            if (index == -1) {
+                outcomes.add(standalone ? analyzeAlone(pass, roots, table) : new PassOutcome(pass, List.of(), null));
+            } else if (failures[index] != null) {
+                outcomes.add(new PassOutcome(pass, List.of(), failures[index]));
+            } else {
+                outcomes.add(new PassOutcome(pass, visitors.get(index).getReports(), null));
+            }
+        }
+
+        return outcomes;
+    }
+
+    private static void visit(JmmNode node, SymbolTable table, List<AnalysisVisitor> visitors, Exception[] failures,
+                              Predicate<JmmNode> skip, Accumulator[] timers) {
+        if (skip.test(node)) {
+            return;
+        }
+
+        for (int i = 0; i < visitors.size(); i++) {
+            if (failures[i] != null) {
+                continue;
+            }
+
+            if (timers != null) {
+                timers[i].start();
+            }
+            try {
+                visitors.get(i).visitNode(node, table);
+            } catch (Exception e) {
+                failures[i] = e;
+            } finally {
+                if (timers != null) {
+                    timers[i].stop();
+                }
+            }
+        }
+
+        for (var child : node.getChildren()) {
+            visit(child, table, visitors, failures, skip, timers);
+        }
+    }
+
+    private static PassOutcome analyzeAlone(AnalysisPass pass, List<JmmNode> roots, SymbolTable table) {
+        try (var timer = Instrumentation.accumulate(getStepName(pass))) {
+            if (timer != null) {
+                timer.start();
+            }
+            try {
+                var reports = new ArrayList<Report>();
+                for (var root : roots) {
+                    reports.addAll(pass.analyze(root, table));
+                }
+                return new PassOutcome(pass, reports, null);
+            } catch (Exception e) {
+                return new PassOutcome(pass, List.of(), e);
+            } finally {
+                if (timer != null) {
+                    timer.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a timer for each visitor, or null if the analysis is not instrumented
+     */
+    private static Accumulator[] getTimers(List<AnalysisVisitor> visitors) {
+        var timers = new Accumulator[visitors.size()];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = Instrumentation.accumulate(getStepName(visitors.get(i)));
+            if (timers[i] == null) {
+                return null;
+            }
+        }
+
+        return timers;
+    }
+
+    private static void closeTimers(Accumulator[] timers) {
+        if (timers != null) {
+            for (var timer : timers) {
+                timer.close();
+            }
+        }
+    }
+
+    private static String getStepName(AnalysisPass pass) {
+        return pass.getClass().getSimpleName();
+    }
+
+    /**
+     * Reports of a pass, or the exception that stopped it.
+     */
+    record PassOutcome(AnalysisPass pass, List<Report> reports, Exception failure) {
+
+        List<Report> getReports() {
+            return failure == null ? reports : List.of(newPassError(pass, failure));
+        }
+    }
+
+    static Report newPassError(AnalysisPass pass, Exception e) {
+        return Report.newError(Stage.SEMANTIC,
+                -1,
+                -1,
+                "Problem while executing analysis pass '" + pass.getClass() + "'",
+                e);
+    }
+}
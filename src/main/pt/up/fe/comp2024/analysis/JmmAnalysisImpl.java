@@ -1,6 +1,5 @@
 package pt.up.fe.comp2024.analysis;
 
-import org.antlr.v4.runtime.misc.Pair;
 import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
@@ -8,24 +7,27 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.cfg.ConditionalConstantPropagation;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.Instrumentation;
+import pt.up.fe.comp2024.utils.Log;
+import pt.up.fe.comp2024.utils.ReportUtils;
 
-import java.sql.SQLOutput;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
-    private final List<AnalysisPass> analysisPasses;
-
-    public JmmAnalysisImpl() {
-
-        this.analysisPasses = List.of(new UndeclaredVariable(), new Types(), new Varargs(), new InvalidParameters(), new ReturnChecker(), new Duplicates(), new Statics(), new LengthChecker());
+    /**
+     * @return new instances of the semantic analysis passes, in the order their reports are given
+     */
+    public static List<AnalysisPass> createPasses() {
+        return List.of(new UndeclaredVariable(), new Types(), new Varargs(), new InvalidParameters(), new ReturnChecker(), new Duplicates(), new Statics(), new LengthChecker());
     }
 
     @Override
@@ -33,40 +35,36 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
-
-        List<Report> reports = new ArrayList<>();
-
-        // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
-            try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
-            } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
-            }
+        JmmSymbolTable table = Instrumentation.measure("symbolTable", () -> JmmSymbolTableBuilder.build(rootNode));
 
-        }
-        System.out.println("Reports: "+reports);
+        // Types of the expressions, computed once for all the passes and the OLLIR generation
+        Instrumentation.measure("typeAttribution", () -> TypeUtils.attributeTypes(rootNode, table));
+
+        // Run the passes after the passes they depend on, skipping them if those fail
+        var parallel = CompilerConfig.isParallelAnalysis(parserResult.getConfig());
+        List<Report> reports = Instrumentation.measure("passes",
+                () -> new AnalysisScheduler(JmmAnalysisImpl::createPasses, parallel).analyze(rootNode, table));
+        Log.debug(() -> "Reports: " + reports);
 
         // Transform varargs in arrays in method calls
-        transformVarargs(rootNode, table);
-
-        // Optimize the code if the flag is set
-        if(parserResult.getConfig().containsKey("optimize")){
-            var changedF = true;
-            var changedP = true;
-            while(changedF || changedP){
-                var cp = new ConstProp();
-                changedF = constantFolding(rootNode);
-                cp.analyze(rootNode, table);
-                changedP = cp.hasChanged();
-            }
+        Instrumentation.measure("transformVarargs", () -> transformVarargs(rootNode, table));
+
+        // Optimize the code if the flag is set and the program has no errors, the constants are evaluated by their types
+        if (CompilerConfig.getOptimize(parserResult.getConfig()) && !ReportUtils.anyError(reports)) {
+            Instrumentation.measure("constantFolding", () -> {
+                // Folds the whole tree once, afterwards only what the propagation of constants changes
+                var folder = new ConstantFolder();
+                folder.foldTree(rootNode);
+
+                var propagation = new ConditionalConstantPropagation(table, folder);
+                for (var classDecl : rootNode.getChildren(Kind.CLASS_DECL)) {
+                    for (var method : classDecl.getChildren()) {
+                        if (Kind.check(method, Kind.METHOD_DECL, Kind.MAIN_METHOD_DECL)) {
+                            propagation.propagate(method);
+                        }
+                    }
+                }
+            });
         }
 
         return new JmmSemanticsResult(parserResult, table, reports);
@@ -109,136 +107,4 @@ public class JmmAnalysisImpl implements JmmAnalysis {
         }
         return -1;
     }
-
-    private boolean constantFolding(JmmNode node){
-        var changed = false;
-        for (var n : node.getDescendants()) {
-            if (n.getKind().equals("BinaryExpr")) {
-                var left = n.getChild(0);
-                var op = n.get("op");
-                if (op.equals("!")) {
-                    if (left.getKind().equals("BooleanLiteral")) {
-                        var value = left.get("value");
-                        if (value.equals("true")) value = "false";
-                        else value = "true";
-                        JmmNodeImpl newBoolean = new JmmNodeImpl("BooleanLiteral");
-                        newBoolean.put("value", value);
-                        n.replace(newBoolean);
-                        changed = true;
-                    }
-                    continue;
-                }
-                var right = n.getChild(1);
-                switch (op) {
-                    case "+" -> {
-                        if (left.getKind().equals("IntegerLiteral") && right.getKind().equals("IntegerLiteral")) {
-                            var leftValue = Integer.parseInt(left.get("value"));
-                            var rightValue = Integer.parseInt(right.get("value"));
-                            var result = leftValue + rightValue;
-                            JmmNodeImpl newInt = new JmmNodeImpl("IntegerLiteral");
-                            System.out.println(Integer.toString(result));
-                            newInt.put("value", Integer.toString(result));
-                            n.replace(newInt);
-                            changed = true;
-                        }
-                    }
-                    case "-" -> {
-                        if (left.getKind().equals("IntegerLiteral") && right.getKind().equals("IntegerLiteral")) {
-                            var leftValue = Integer.parseInt(left.get("value"));
-                            var rightValue = Integer.parseInt(right.get("value"));
-                            var result = leftValue - rightValue;
-                            JmmNodeImpl newInt = new JmmNodeImpl("IntegerLiteral");
-                            newInt.put("value", Integer.toString(result));
-                            n.replace(newInt);
-                            changed = true;
-                        }
-                    }
-                    case "*" -> {
-                        if (left.getKind().equals("IntegerLiteral") && right.getKind().equals("IntegerLiteral")) {
-                            var leftValue = Integer.parseInt(left.get("value"));
-                            var rightValue = Integer.parseInt(right.get("value"));
-                            var result = leftValue * rightValue;
-                            JmmNodeImpl newInt = new JmmNodeImpl("IntegerLiteral");
-                            newInt.put("value", Integer.toString(result));
-                            n.replace(newInt);
-                            changed = true;
-                        }
-                    }
-                    case "/" -> {
-                        if (left.getKind().equals("IntegerLiteral") && right.getKind().equals("IntegerLiteral")) {
-                            var leftValue = Integer.parseInt(left.get("value"));
-                            var rightValue = Integer.parseInt(right.get("value"));
-                            var result = leftValue / rightValue;
-                            JmmNodeImpl newInt = new JmmNodeImpl("IntegerLiteral");
-                            newInt.put("value", Integer.toString(result));
-                            n.replace(newInt);
-                            changed = true;
-                        }
-                    }
-                    case "<" -> {
-                        if (left.getKind().equals("IntegerLiteral") && right.getKind().equals("IntegerLiteral")) {
-                            var leftValue = Integer.parseInt(left.get("value"));
-                            var rightValue = Integer.parseInt(right.get("value"));
-                            var result = leftValue < rightValue;
-                            JmmNodeImpl newBoolean = new JmmNodeImpl("BooleanLiteral");
-                            newBoolean.put("value", Boolean.toString(result));
-                            n.replace(newBoolean);
-                            changed = true;
-                        }
-                    }
-                    case "&&" -> {
-                        if (left.getKind().equals("BooleanLiteral") && right.getKind().equals("BooleanLiteral")) {
-                            var leftValue = left.get("value");
-                            var rightValue = right.get("value");
-                            var result = Boolean.parseBoolean(leftValue) && Boolean.parseBoolean(rightValue);
-                            JmmNodeImpl newBoolean = new JmmNodeImpl("BooleanLiteral");
-                            newBoolean.put("value", Boolean.toString(result));
-                            n.replace(newBoolean);
-                            changed = true;
-                        }
-                    }
-                }
-            }
-        }
-        return changed;
-    }
-
-    private boolean constantPropagation(JmmNode node, SymbolTable table){
-        var changed = false;
-        // Create map with all the variables and their values
-        var variables = new HashMap<String, String>();
-        for (var n : node.getDescendants()) {
-            if(n.getKind().equals("AssignStmt")){
-                var varName = n.get("name");
-                var value = n.getChild(0);
-                //System.out.println("AssignExpr: "+varName+" "+value.getKind());
-                if(value.getKind().equals("IntegerLiteral") || value.getKind().equals("BooleanLiteral")){
-                    variables.put(varName, value.get("value"));
-                }
-            }
-
-            if(n.getKind().equals("VarRefExpr")){
-                //System.out.println("VarRefExpr: "+n.get("name")+" "+n.getParent().getKind() + " Variables " + variables);
-                var varName = n.get("name");
-                if(variables.containsKey(varName)){
-                    var value = variables.get(varName);
-                    if(value.equals("true") || value.equals("false")) {
-                        JmmNodeImpl newBoolean = new JmmNodeImpl("BooleanLiteral");
-                        newBoolean.put("value", value);
-                        // Replace the variable with the value
-                        n.replace(newBoolean);
-                    }
-                    else {
-                        JmmNodeImpl newInt = new JmmNodeImpl("IntegerLiteral");
-                        newInt.put("value", value);
-                        n.replace(newInt);
-                    }
-                    //remove from map
-                    variables.remove(varName);
-                    changed = true;
-                }
-            }
-        }
-        return changed;
-    }
 }
@@ -0,0 +1,115 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.FusedAnalysis.PassOutcome;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.utils.Instrumentation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs the analysis passes over each method of the class concurrently, on a fork-join pool.
+ * <p>
+ * Apart from the checks on imports, fields and the class declaration, the passes only look inside the method being
+ * visited, and their state is reset at each method. The methods are therefore split in batches of consecutive
+ * methods, a few for each thread of the pool, each analyzed by its own instances of the passes, fused by
+ * {@link FusedAnalysis}, and the rest of the tree by another set. The symbol table and the AST are only read while
+ * the passes run.
+ * <p>
+ * The reports are the same as those of the fused analysis, sorted by line and column, with ties kept in the order
+ * of the passes and then of the methods, so they do not depend on scheduling. A pass that throws on any method is
+ * reported once, with the first exception in source order, and none of its other reports are kept, as when it runs
+ * over the whole tree.
+ */
+public class ParallelAnalysis {
+
+    private static final int BATCHES_PER_THREAD = 4;
+
+    static final Comparator<Report> BY_POSITION = Comparator.comparingInt(Report::getLine)
+            .thenComparingInt(Report::getColumn);
+
+    private final Supplier<List<AnalysisPass>> passes;
+
+    /**
+     * @param passes creates new instances of the passes, called once for each batch and once for the rest of the tree
+     */
+    public ParallelAnalysis(Supplier<List<AnalysisPass>> passes) {
+        this.passes = passes;
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        var reports = new ArrayList<Report>();
+        for (var outcome : analyzePasses(root, table)) {
+            reports.addAll(outcome.getReports());
+        }
+        reports.sort(BY_POSITION);
+
+        return reports;
+    }
+
+    /**
+     * @return the outcome of each pass over all the methods and the rest of the tree, in the order of the passes
+     */
+    List<PassOutcome> analyzePasses(JmmNode root, SymbolTable table) {
+        var methods = root.getChildren(Kind.CLASS_DECL).stream()
+                .flatMap(classDecl -> classDecl.getChildren().stream())
+                .filter(ParallelAnalysis::isMethod)
+                .toList();
+
+        var tasks = new ArrayList<ForkJoinTask<List<PassOutcome>>>();
+        tasks.add(ForkJoinTask.adapt(Instrumentation.forked(() -> new FusedAnalysis(passes.get())
+                .analyzePasses(List.of(root), table, ParallelAnalysis::isMethod, true))));
+        for (var batch : getBatches(methods)) {
+            tasks.add(ForkJoinTask.adapt(Instrumentation.forked(() -> new FusedAnalysis(passes.get())
+                    .analyzePasses(batch, table, node -> false, false))));
+        }
+
+        // Forks into the pool of the calling thread, e.g. of a batch compilation, or into the common pool
+        ForkJoinTask.invokeAll(tasks);
+
+        var chunks = tasks.stream().map(ForkJoinTask::join).toList();
+        return merge(chunks);
+    }
+
+    private static List<PassOutcome> merge(List<List<PassOutcome>> chunks) {
+        var outcomes = new ArrayList<PassOutcome>();
+        for (int i = 0; i < chunks.get(0).size(); i++) {
+            var reports = new ArrayList<Report>();
+            PassOutcome failed = null;
+            for (var chunk : chunks) {
+                var outcome = chunk.get(i);
+                if (outcome.failure() != null) {
+                    failed = outcome;
+                    break;
+                }
+                reports.addAll(outcome.reports());
+            }
+
+            outcomes.add(failed != null ? failed : new PassOutcome(chunks.get(0).get(i).pass(), reports, null));
+        }
+
+        return outcomes;
+    }
+
+    private static List<List<JmmNode>> getBatches(List<JmmNode> methods) {
+        var pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int batchCount = Math.min(methods.size(), pool.getParallelism() * BATCHES_PER_THREAD);
+
+        var batches = new ArrayList<List<JmmNode>>();
+        for (int i = 0; i < batchCount; i++) {
+            batches.add(methods.subList(i * methods.size() / batchCount, (i + 1) * methods.size() / batchCount));
+        }
+        return batches;
+    }
+
+    private static boolean isMethod(JmmNode node) {
+        return Kind.METHOD_DECL.check(node) || Kind.MAIN_METHOD_DECL.check(node);
+    }
+}
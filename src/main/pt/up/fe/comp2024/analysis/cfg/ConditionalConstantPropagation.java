@@ -0,0 +1,412 @@
+package pt.up.fe.comp2024.analysis.cfg;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.analysis.ConstantFolder;
+import pt.up.fe.comp2024.analysis.cfg.ControlFlowGraph.BasicBlock;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse conditional constant propagation over the {@link ControlFlowGraph} of a method.
+ * <p>
+ * The values of the locals and parameters of the method are computed for each statement that can be reached, starting
+ * from nothing known at the entry, and only following the edges a branch can take: a condition with a constant value
+ * only leads to one of its successors. Statements that are not reached yet do not contribute to the values where
+ * paths join, so a variable that is only assigned the same constant on the paths that can be taken, including around
+ * loops, is a constant. Fields are not tracked, since method calls can change them.
+ * <p>
+ * Afterwards, the variables with a constant value are replaced by it, the expressions are folded, if statements with a
+ * constant condition are replaced by the arm that is taken, loops that are never entered are removed, and so are the
+ * assignments to variables that are no longer read and the if statements they leave empty.
+ */
+public class ConditionalConstantPropagation {
+
+    /**
+     * The value of a variable: a literal, or not a constant if the kind is null.
+     */
+    private record Value(Kind kind, String literal) {
+
+        static final Value NOT_CONSTANT = new Value(null, null);
+
+        boolean isConstant() {
+            return kind != null;
+        }
+
+        boolean isInteger() {
+            return kind == Kind.INTEGER_LITERAL;
+        }
+
+        boolean isBoolean() {
+            return kind == Kind.BOOLEAN_LITERAL;
+        }
+
+        boolean isTrue() {
+            return isBoolean() && Boolean.parseBoolean(literal);
+        }
+
+        boolean isFalse() {
+            return isBoolean() && !Boolean.parseBoolean(literal);
+        }
+
+        int intValue() {
+            return Integer.parseInt(literal);
+        }
+
+        static Value of(int value) {
+            return new Value(Kind.INTEGER_LITERAL, Integer.toString(value));
+        }
+
+        static Value of(boolean value) {
+            return new Value(Kind.BOOLEAN_LITERAL, Boolean.toString(value));
+        }
+
+        Value join(Value other) {
+            return equals(other) ? this : NOT_CONSTANT;
+        }
+    }
+
+    private final SymbolTable table;
+    private final ConstantFolder folder;
+    private boolean changed;
+
+    /**
+     * @param folder folds the expressions whose variables are replaced by their values
+     */
+    public ConditionalConstantPropagation(SymbolTable table, ConstantFolder folder) {
+        this.table = table;
+        this.folder = folder;
+    }
+
+    /**
+     * @return true if any method was changed since the propagation was created
+     */
+    public boolean propagate(JmmNode method) {
+        var variables = getVariables(method);
+        var states = analyze(ControlFlowGraph.build(method), variables);
+
+        replaceConstants(states, variables);
+        folder.fold();
+
+        simplifyBranches(method);
+        removeDeadStores(method, variables);
+        // Again, for the if statements left empty by the removed stores
+        simplifyBranches(method);
+
+        return changed;
+    }
+
+    /**
+     * @return the index of each local and parameter of the method in the states
+     */
+    private Map<String, Integer> getVariables(JmmNode method) {
+        var methodName = method.get("name");
+        var variables = new HashMap<String, Integer>();
+        for (var symbol : table.getParameters(methodName)) {
+            variables.putIfAbsent(symbol.getName(), variables.size());
+        }
+        for (var symbol : table.getLocalVariables(methodName)) {
+            variables.putIfAbsent(symbol.getName(), variables.size());
+        }
+        return variables;
+    }
+
+    /**
+     * @return the values of the variables at the start of each block that can be reached
+     */
+    private Map<BasicBlock, Value[]> analyze(ControlFlowGraph cfg, Map<String, Integer> variables) {
+        var states = new HashMap<BasicBlock, Value[]>();
+        var worklist = new ArrayDeque<BasicBlock>();
+
+        var initial = new Value[variables.size()];
+        Arrays.fill(initial, Value.NOT_CONSTANT);
+        states.put(cfg.getEntry(), initial);
+        worklist.add(cfg.getEntry());
+
+        while (!worklist.isEmpty()) {
+            var block = worklist.poll();
+            var out = states.get(block).clone();
+            for (var statement : block.getStatements()) {
+                transfer(statement, out, variables);
+            }
+
+            if (block.getBranch() == null) {
+                if (block.getNext() != null) {
+                    flowInto(block.getNext(), out, states, worklist);
+                }
+                continue;
+            }
+
+            var condition = evaluate(block.getBranch().getChild(0), out, variables);
+            if (!condition.isFalse()) {
+                flowInto(block.getWhenTrue(), out, states, worklist);
+            }
+            if (!condition.isTrue()) {
+                flowInto(block.getWhenFalse(), out, states, worklist);
+            }
+        }
+
+        return states;
+    }
+
+    /**
+     * Updates the values of the variables after the statement.
+     */
+    private static void transfer(JmmNode statement, Value[] state, Map<String, Integer> variables) {
+        if (!Kind.ASSIGN_STMT.check(statement)) {
+            return;
+        }
+
+        var index = variables.get(statement.get("name"));
+        if (index != null) {
+            state[index] = evaluate(statement.getChild(0), state, variables);
+        }
+    }
+
+    private static void flowInto(BasicBlock to, Value[] out, Map<BasicBlock, Value[]> states,
+                                 ArrayDeque<BasicBlock> worklist) {
+        var state = states.get(to);
+        if (state == null) {
+            states.put(to, out.clone());
+            worklist.add(to);
+            return;
+        }
+
+        var stateChanged = false;
+        for (int i = 0; i < state.length; i++) {
+            var joined = state[i].join(out[i]);
+            if (joined != state[i]) {
+                state[i] = joined;
+                stateChanged = true;
+            }
+        }
+
+        if (stateChanged) {
+            worklist.add(to);
+        }
+    }
+
+    /**
+     * Gives a constant value to the same expressions as {@link ConstantFolder}, once their variables are replaced.
+     */
+    private static Value evaluate(JmmNode expr, Value[] state, Map<String, Integer> variables) {
+        var kind = Kind.fromString(expr.getKind());
+        return switch (kind) {
+            case INTEGER_LITERAL, BOOLEAN_LITERAL -> new Value(kind, expr.get("value"));
+            case VAR_REF_EXPR -> {
+                var index = variables.get(expr.get("name"));
+                yield index == null ? Value.NOT_CONSTANT : state[index];
+            }
+            case PAREN_EXPR -> evaluate(expr.getChild(0), state, variables);
+            case BINARY_EXPR -> evaluateBinary(expr, state, variables);
+            default -> Value.NOT_CONSTANT;
+        };
+    }
+
+    private static Value evaluateBinary(JmmNode expr, Value[] state, Map<String, Integer> variables) {
+        var op = expr.get("op");
+        var left = evaluate(expr.getChild(0), state, variables);
+
+        if (op.equals("!")) {
+            return left.isBoolean() ? Value.of(!left.isTrue()) : Value.NOT_CONSTANT;
+        }
+
+        if (op.equals("&&")) {
+            if (left.isFalse()) {
+                return left;
+            }
+
+            var right = evaluate(expr.getChild(1), state, variables);
+            if (left.isTrue()) {
+                return right;
+            }
+            // x && false, if x can be dropped
+            return right.isFalse() && ConstantFolder.isPure(expr.getChild(0)) ? right : Value.NOT_CONSTANT;
+        }
+
+        var right = evaluate(expr.getChild(1), state, variables);
+        // The operands of an invalid program may not be integers
+        if (left.isInteger() && right.isInteger()) {
+            return switch (op) {
+                case "+" -> Value.of(left.intValue() + right.intValue());
+                case "-" -> Value.of(left.intValue() - right.intValue());
+                case "*" -> Value.of(left.intValue() * right.intValue());
+                // Division by zero throws at run time
+                case "/" -> right.intValue() == 0 ? Value.NOT_CONSTANT : Value.of(left.intValue() / right.intValue());
+                case "<" -> Value.of(left.intValue() < right.intValue());
+                default -> Value.NOT_CONSTANT;
+            };
+        }
+
+        // x * 0, 0 * x, if x can be dropped
+        if (op.equals("*") && ((isZero(right) && ConstantFolder.isPure(expr.getChild(0)))
+                || (isZero(left) && ConstantFolder.isPure(expr.getChild(1))))) {
+            return Value.of(0);
+        }
+
+        return Value.NOT_CONSTANT;
+    }
+
+    private static boolean isZero(Value value) {
+        return value.isInteger() && value.intValue() == 0;
+    }
+
+    private void replaceConstants(Map<BasicBlock, Value[]> states, Map<String, Integer> variables) {
+        var replacements = new ArrayList<JmmNode>();
+        var values = new ArrayList<Value>();
+        for (var entry : states.entrySet()) {
+            // The states are not needed afterwards, so each is updated in place along its block
+            var state = entry.getValue();
+            for (var statement : entry.getKey().getStatements()) {
+                for (var expr : ControlFlowGraph.getExpressions(statement)) {
+                    collectConstantReads(expr, state, variables, replacements, values);
+                }
+                transfer(statement, state, variables);
+            }
+
+            if (entry.getKey().getBranch() != null) {
+                collectConstantReads(entry.getKey().getBranch().getChild(0), state, variables, replacements, values);
+            }
+        }
+
+        for (int i = 0; i < replacements.size(); i++) {
+            var literal = new JmmNodeImpl(values.get(i).kind().toString());
+            literal.put("value", values.get(i).literal());
+            replacements.get(i).replace(literal);
+            folder.addParentOf(literal);
+            changed = true;
+        }
+    }
+
+    private static void collectConstantReads(JmmNode expr, Value[] state, Map<String, Integer> variables,
+                                             List<JmmNode> reads, List<Value> values) {
+        if (Kind.VAR_REF_EXPR.check(expr)) {
+            var index = variables.get(expr.get("name"));
+            if (index != null && state[index].isConstant()) {
+                reads.add(expr);
+                values.add(state[index]);
+            }
+            return;
+        }
+
+        for (var child : expr.getChildren()) {
+            collectConstantReads(child, state, variables, reads, values);
+        }
+    }
+
+    /**
+     * Replaces if statements whose condition is a literal by the arm that is taken, and removes while statements whose
+     * condition is false and if statements with nothing in either arm, inner statements first.
+     */
+    private void simplifyBranches(JmmNode node) {
+        for (var child : node.getChildren()) {
+            simplifyBranches(child);
+        }
+
+        if (Kind.IF_STMT.check(node) && Kind.BOOLEAN_LITERAL.check(node.getChild(0))) {
+            var taken = node.getChild(Boolean.parseBoolean(node.getChild(0).get("value")) ? 1 : 2);
+            node.removeChild(taken);
+            replaceStatement(node, taken);
+        } else if (Kind.WHILE_STMT.check(node) && Kind.BOOLEAN_LITERAL.check(node.getChild(0))
+                && !Boolean.parseBoolean(node.getChild(0).get("value"))) {
+            replaceStatement(node, new JmmNodeImpl(Kind.SCOPE_STMT.toString()));
+        } else if (Kind.IF_STMT.check(node) && isEmpty(node.getChild(1)) && isEmpty(node.getChild(2))
+                && ConstantFolder.isPure(node.getChild(0))) {
+            replaceStatement(node, new JmmNodeImpl(Kind.SCOPE_STMT.toString()));
+        }
+    }
+
+    private static boolean isEmpty(JmmNode statement) {
+        return Kind.SCOPE_STMT.check(statement) && statement.getNumChildren() == 0;
+    }
+
+    /**
+     * Removes the assignments of values that can be dropped to variables that are not read, until there are none.
+     */
+    private void removeDeadStores(JmmNode method, Map<String, Integer> variables) {
+        var reads = new HashMap<String, Integer>();
+        var stores = new HashMap<String, List<JmmNode>>();
+        collectReadsAndStores(method, variables, reads, stores);
+
+        var worklist = new ArrayDeque<String>();
+        for (var name : stores.keySet()) {
+            if (!reads.containsKey(name)) {
+                worklist.add(name);
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            var name = worklist.poll();
+            for (var store : stores.remove(name)) {
+                var storeReads = new HashMap<String, Integer>();
+                collectReadsAndStores(store.getChild(0), variables, storeReads, new HashMap<>());
+                for (var read : storeReads.entrySet()) {
+                    var readName = read.getKey();
+                    if (reads.merge(readName, -read.getValue(), Integer::sum) == 0 && stores.containsKey(readName)) {
+                        worklist.add(readName);
+                    }
+                }
+                replaceStatement(store, new JmmNodeImpl(Kind.SCOPE_STMT.toString()));
+            }
+        }
+    }
+
+    /**
+     * Counts the reads of each variable, and collects the assignments of values that can be dropped to each local and
+     * parameter.
+     */
+    private static void collectReadsAndStores(JmmNode node, Map<String, Integer> variables, Map<String, Integer> reads,
+                                              Map<String, List<JmmNode>> stores) {
+        if (Kind.VAR_REF_EXPR.check(node)) {
+            reads.merge(node.get("name"), 1, Integer::sum);
+        } else if (Kind.ASSIGN_ARRAY_STMT.check(node)) {
+            // Stores into the array the variable refers to
+            reads.merge(node.get("name"), 1, Integer::sum);
+        } else if (Kind.ASSIGN_STMT.check(node) && variables.containsKey(node.get("name"))
+                && ConstantFolder.isPure(node.getChild(0))) {
+            stores.computeIfAbsent(node.get("name"), name -> new ArrayList<>()).add(node);
+        }
+
+        for (var child : node.getChildren()) {
+            collectReadsAndStores(child, variables, reads, stores);
+        }
+    }
+
+    /**
+     * Puts the statements of the replacement, or the replacement itself if it is not a scope, in place of the
+     * statement. The arms of if and while statements keep a single scope statement, since the OLLIR generation only
+     * looks at the statements of those scopes.
+     */
+    private void replaceStatement(JmmNode statement, JmmNode replacement) {
+        var parent = statement.getParent();
+        changed = true;
+
+        if (Kind.check(parent, Kind.IF_STMT, Kind.WHILE_STMT)) {
+            if (!Kind.SCOPE_STMT.check(replacement)) {
+                var scope = new JmmNodeImpl(Kind.SCOPE_STMT.toString());
+                scope.add(replacement);
+                replacement = scope;
+            }
+            statement.replace(replacement);
+            return;
+        }
+
+        int index = parent.removeChild(statement);
+        if (!Kind.SCOPE_STMT.check(replacement)) {
+            parent.add(replacement, index);
+            return;
+        }
+
+        for (var inner : replacement.getChildren()) {
+            replacement.removeChild(inner);
+            parent.add(inner, index++);
+        }
+    }
+}
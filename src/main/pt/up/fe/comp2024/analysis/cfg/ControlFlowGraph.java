@@ -0,0 +1,196 @@
+package pt.up.fe.comp2024.analysis.cfg;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Control-flow graph of the statements of a method declaration, in basic blocks.
+ * <p>
+ * A block is a sequence of simple statements (assignments, expression statements and returns), which may end with the
+ * condition of an if or while statement, and then has a successor for when the condition is true and one for when it
+ * is false. The condition of a while statement starts a block of its own, since the end of the body jumps back to it.
+ * Scope statements are the sequence of their statements. Returns go to the exit block, as does the end of the method
+ * body.
+ */
+public class ControlFlowGraph {
+
+    /**
+     * A sequence of statements that always run one after the other.
+     */
+    public static class BasicBlock {
+
+        private final List<JmmNode> statements = new ArrayList<>();
+        private JmmNode branch;
+        private BasicBlock next;
+        private BasicBlock whenTrue;
+        private BasicBlock whenFalse;
+
+        private BasicBlock() {
+        }
+
+        /**
+         * @return the simple statements of the block, in order
+         */
+        public List<JmmNode> getStatements() {
+            return Collections.unmodifiableList(statements);
+        }
+
+        /**
+         * @return the if or while statement whose condition ends the block, or null if the block does not branch
+         */
+        public JmmNode getBranch() {
+            return branch;
+        }
+
+        /**
+         * @return the successor of a block that does not branch, or null for the exit
+         */
+        public BasicBlock getNext() {
+            return next;
+        }
+
+        public BasicBlock getWhenTrue() {
+            return whenTrue;
+        }
+
+        public BasicBlock getWhenFalse() {
+            return whenFalse;
+        }
+    }
+
+    /**
+     * An edge whose target is not known yet, taken when the condition of the block has the given value, or always if
+     * it is null.
+     */
+    private record OpenEdge(BasicBlock from, Boolean when) {
+    }
+
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private final BasicBlock entry;
+    private final BasicBlock exit;
+
+    private ControlFlowGraph(JmmNode method) {
+        entry = newBlock();
+        exit = newBlock();
+
+        var open = List.of(new OpenEdge(entry, null));
+        for (var child : method.getChildren()) {
+            if (Kind.fromString(child.getKind()).isStmt()) {
+                open = addStatement(child, open);
+            }
+        }
+        link(open, exit);
+    }
+
+    public static ControlFlowGraph build(JmmNode method) {
+        return new ControlFlowGraph(method);
+    }
+
+    /**
+     * @return the expressions the statement evaluates, not including those of nested statements
+     */
+    public static List<JmmNode> getExpressions(JmmNode statement) {
+        var kind = Kind.fromString(statement.getKind());
+        return switch (kind) {
+            case IF_STMT, WHILE_STMT -> List.of(statement.getChild(0));
+            // The value is inside a Ret node
+            case RETURN_STMT -> statement.getChild(0).getChildren();
+            default -> statement.getChildren();
+        };
+    }
+
+    public BasicBlock getEntry() {
+        return entry;
+    }
+
+    public BasicBlock getExit() {
+        return exit;
+    }
+
+    /**
+     * @return the blocks of the graph, the entry and exit first and then the others in source order
+     */
+    public List<BasicBlock> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * Adds the statement after the open edges.
+     *
+     * @return the edges that leave the statement
+     */
+    private List<OpenEdge> addStatement(JmmNode statement, List<OpenEdge> open) {
+        var kind = Kind.fromString(statement.getKind());
+        switch (kind) {
+            case SCOPE_STMT -> {
+                for (var child : statement.getChildren()) {
+                    open = addStatement(child, open);
+                }
+                return open;
+            }
+            case IF_STMT -> {
+                var block = getCurrentBlock(open);
+                block.branch = statement;
+
+                var leaving = new ArrayList<>(addStatement(statement.getChild(1), List.of(new OpenEdge(block, true))));
+                leaving.addAll(addStatement(statement.getChild(2), List.of(new OpenEdge(block, false))));
+                return leaving;
+            }
+            case WHILE_STMT -> {
+                var block = newBlock();
+                link(open, block);
+                block.branch = statement;
+
+                link(addStatement(statement.getChild(1), List.of(new OpenEdge(block, true))), block);
+                return List.of(new OpenEdge(block, false));
+            }
+            case RETURN_STMT -> {
+                var block = getCurrentBlock(open);
+                block.statements.add(statement);
+                block.next = exit;
+                return List.of();
+            }
+            default -> {
+                var block = getCurrentBlock(open);
+                block.statements.add(statement);
+                return List.of(new OpenEdge(block, null));
+            }
+        }
+    }
+
+    /**
+     * @return the block the open edges come from, if it always continues into the next statement, or a new block
+     * after the open edges
+     */
+    private BasicBlock getCurrentBlock(List<OpenEdge> open) {
+        if (open.size() == 1 && open.get(0).when() == null) {
+            return open.get(0).from();
+        }
+
+        var block = newBlock();
+        link(open, block);
+        return block;
+    }
+
+    private BasicBlock newBlock() {
+        var block = new BasicBlock();
+        blocks.add(block);
+        return block;
+    }
+
+    private static void link(List<OpenEdge> open, BasicBlock to) {
+        for (var edge : open) {
+            if (edge.when() == null) {
+                edge.from().next = to;
+            } else if (edge.when()) {
+                edge.from().whenTrue = to;
+            } else {
+                edge.from().whenFalse = to;
+            }
+        }
+    }
+}
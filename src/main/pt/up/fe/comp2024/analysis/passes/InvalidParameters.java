@@ -5,6 +5,7 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
@@ -21,6 +22,12 @@ import java.util.List;
  */
 public class InvalidParameters extends AnalysisVisitor {
 
+    @Override
+    public List<Class<? extends AnalysisPass>> getDependencies() {
+        // Undeclared variables and methods have no type
+        return List.of(UndeclaredVariable.class);
+    }
+
     @Override
     protected void buildVisitor() {
         addVisit(Kind.METHOD_CALL_ON_OBJECT_EXPR, this::visitMethodCallOnObject);
@@ -37,17 +44,12 @@ public class InvalidParameters extends AnalysisVisitor {
             if(eType.getName().equals("imported")){
                 return null;
             }
-            var imports=((JmmSymbolTable)table).getImportsList();
-            for(var ii:imports){
-                var i=ii.get(ii.size()-1);
-                if(i.equals(eType.getName())){
-                    return null;
-                }
-                if (e.getKind().equals(Kind.VAR_REF_EXPR.toString())) {
-                    if (e.get("name").equals(i)) {
-                        return null;
-                    }
-                }
+            var jmmTable = (JmmSymbolTable) table;
+            if (jmmTable.isImported(eType.getName())) {
+                return null;
+            }
+            if (Kind.VAR_REF_EXPR.check(e) && jmmTable.isImported(e.get("name"))) {
+                return null;
             }
 
         var methodName = methodCall.get("method");
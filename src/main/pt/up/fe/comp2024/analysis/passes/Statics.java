@@ -6,6 +6,7 @@ import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.utils.Log;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -55,9 +56,9 @@ public class Statics extends AnalysisVisitor {
 
             for(var varRef:varRefs){
                 for(var f:fields){
-                    System.out.println("Field: "+f.getName()+" VarRef: "+varRef.get("name"));
+                    Log.trace(() -> "Field: "+f.getName()+" VarRef: "+varRef.get("name"));
                     if(f.getName().equals(varRef.get("name"))){
-                        System.out.println("Field: "+f.getName()+" VarRef: "+varRef.get("name"));
+                        Log.trace(() -> "Field: "+f.getName()+" VarRef: "+varRef.get("name"));
 
                         //if that varRef is a local variable
                         if(table.getLocalVariables(methodName).stream().anyMatch(field -> field.getName().equals(varRef.get("name")))){
@@ -82,9 +83,9 @@ public class Statics extends AnalysisVisitor {
             }
             for(var left:leftSides){
                 for(var f:fields){
-                    System.out.println("Field: "+f.getName()+" VarRef: "+left.get("name"));
+                    Log.trace(() -> "Field: "+f.getName()+" VarRef: "+left.get("name"));
                     if(f.getName().equals(left.get("name"))){
-                        System.out.println("Field: "+f.getName()+" VarRef: "+left.get("name"));
+                        Log.trace(() -> "Field: "+f.getName()+" VarRef: "+left.get("name"));
 
                         //if that varRef is a local variable
                         if(table.getLocalVariables(methodName).stream().anyMatch(field -> field.getName().equals(left.get("name")))){
@@ -109,9 +110,9 @@ public class Statics extends AnalysisVisitor {
             }
             for (var left:leftsideA){
                 for(var f:fields){
-                    System.out.println("Field: "+f.getName()+" VarRef: "+left.get("name"));
+                    Log.trace(() -> "Field: "+f.getName()+" VarRef: "+left.get("name"));
                     if(f.getName().equals(left.get("name"))){
-                        System.out.println("Field: "+f.getName()+" VarRef: "+left.get("name"));
+                        Log.trace(() -> "Field: "+f.getName()+" VarRef: "+left.get("name"));
 
                         //if that varRef is a local variable
                         if(table.getLocalVariables(methodName).stream().anyMatch(field -> field.getName().equals(left.get("name")))){
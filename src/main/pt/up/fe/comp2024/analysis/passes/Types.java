@@ -5,11 +5,13 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
+import java.util.List;
 import java.util.Objects;
 
 public class Types extends AnalysisVisitor {
@@ -17,6 +19,12 @@ public class Types extends AnalysisVisitor {
     private String currentMethod;
     private Type currentMethodType;
 
+    @Override
+    public List<Class<? extends AnalysisPass>> getDependencies() {
+        // Undeclared variables and methods have no type
+        return List.of(UndeclaredVariable.class);
+    }
+
     @Override
     protected void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
@@ -12,7 +12,6 @@ import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.specs.util.SpecsCheck;
 
-import java.util.List;
 
 /**
  * Checks if the type of the expression in a return statement is compatible with the method return type.
@@ -48,32 +47,11 @@ public class UndeclaredVariable extends AnalysisVisitor {
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var varRefName = varRefExpr.get("name");
 
-        // Var is a field, return
-        if (table.getFields().stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
+        // Var is a local, parameter, field or imported class, return
+        if (((JmmSymbolTable) table).resolve(currentMethod, varRefName) != null) {
             return null;
         }
 
-        // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
-            return null;
-        }
-
-        // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
-            return null;
-        }
-
-        //print all imports
-        List<List<String>> imports = ((JmmSymbolTable)table).getImportsList();
-        for (List<String> imp : imports) {
-            if(imp.get(imp.size()-1).equals(varRefName)){
-                return null;
-            }
-        }
-
         // Create error report
         var message = String.format("Variable/Object '%s' does not exist.", varRefName);
         addReport(Report.newError(
@@ -113,18 +91,13 @@ public class UndeclaredVariable extends AnalysisVisitor {
                 );
             } else {
                 var obj =methodCallOnObject.getChild(0);
-                var imports = ((JmmSymbolTable)table).getImportsList();
-                for (var imps : imports) {
-                    var imp = imps.get(imps.size() - 1);
-                    if (imp.equals(et.getName())) {
-                        return null;
-                    }
-                    if(obj.getChild(0).getKind().equals(Kind.VAR_REF_EXPR.toString())){
-                        var varName = obj.getChild(0).get("name");
-                        if(varName.equals(imp)){
-                            return null;
-                        }
-                    }
+                var jmmTable = (JmmSymbolTable) table;
+                if (jmmTable.isImported(et.getName())) {
+                    return null;
+                }
+                if (!jmmTable.getImportsList().isEmpty() && Kind.VAR_REF_EXPR.check(obj.getChild(0))
+                        && jmmTable.isImported(obj.getChild(0).get("name"))) {
+                    return null;
                 }
             }
             var message = String.format("Method '%s' does not exist in class '%s'.", methodCallOnObject.get("method"), et.getName());
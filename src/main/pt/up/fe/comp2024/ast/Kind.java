@@ -1,9 +1,14 @@
 package pt.up.fe.comp2024.ast;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.typed.TypedNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public enum Kind {
@@ -34,13 +39,35 @@ public enum Kind {
     NEW_OBJECT_EXPR,
     EXPR,
     ARRAY_ACCESS_EXPR,
-    ASSIGN_ARRAY_STMT;
+    ASSIGN_ARRAY_STMT,
+    RET,
+    STMT;
 
 
-    private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, RETURN_STMT);
-    private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, INTEGER_LITERAL, VAR_REF_EXPR);
+    private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, ASSIGN_ARRAY_STMT, SCOPE_STMT, EXPR_STMT, IF_STMT,
+            WHILE_STMT, RETURN_STMT);
+    private static final Set<Kind> EXPRESSIONS = Set.of(PAREN_EXPR, METHOD_CALL_ON_OBJECT_EXPR, LENGTH_CALL_EXPR,
+            ARRAY_ACCESS_EXPR, ARRAY_VALUES_EXPR, NEW_INT_EXPR, NEW_OBJECT_EXPR, BINARY_EXPR, THIS_EXPR, VAR_REF_EXPR,
+            BOOLEAN_LITERAL, INTEGER_LITERAL);
+
+    private static final Map<String, Kind> KINDS_BY_NAME = new HashMap<>();
+
+    static {
+        for (Kind kind : values()) {
+            KINDS_BY_NAME.put(kind.getNodeName(), kind);
+
+            if (kind.isStmt()) {
+                kind.hierarchy = List.of(kind.getNodeName(), STMT.getNodeName());
+            } else if (kind.isExpr()) {
+                kind.hierarchy = List.of(kind.getNodeName(), EXPR.getNodeName());
+            } else {
+                kind.hierarchy = List.of(kind.getNodeName());
+            }
+        }
+    }
 
     private final String name;
+    private List<String> hierarchy;
 
     private Kind(String name) {
         this.name = name;
@@ -51,19 +78,43 @@ public enum Kind {
     }
 
     public static Kind fromString(String kind) {
-
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = KINDS_BY_NAME.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+
+        return k;
     }
 
     public String getNodeName() {
         return name;
     }
 
+    /**
+     * Nodes built by the parser have the kinds they are instances of as their hierarchy, e.g. [BinaryExpr, Expr].
+     * Every node of a kind can share this list, whose strings are the same instances as the node names, so that the
+     * lookups by kind of the visitors match by reference instead of comparing the characters.
+     *
+     * @return the hierarchy of the nodes of this kind, from the most specific kind
+     */
+    public List<String> getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Makes the nodes of the given tree share the hierarchy lists of their kinds.
+     */
+    public static void shareHierarchies(JmmNode root) {
+        var kind = KINDS_BY_NAME.get(root.getKind());
+        if (kind != null && root instanceof JmmNodeImpl node && node.getHierarchy().equals(kind.getHierarchy())) {
+            node.setHierarchy(kind.getHierarchy());
+        }
+
+        for (var child : root.getChildren()) {
+            shareHierarchies(child);
+        }
+    }
+
     @Override
     public String toString() {
         return getNodeName();
@@ -84,12 +135,16 @@ public enum Kind {
     }
 
     /**
-     * Tests if the given JmmNode has the same kind as this type.
+     * Tests if the given JmmNode has the same kind as this type. The kind of a typed node is compared directly.
      *
      * @param node
      * @return
      */
     public boolean check(JmmNode node) {
+        if (node instanceof TypedNode typed) {
+            return typed.getTypedKind() == this;
+        }
+
         return node.getKind().equals(getNodeName());
     }
 
@@ -1,10 +1,12 @@
 package pt.up.fe.comp2024.ast;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable.ResolvedSymbol;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable.SymbolKind;
+import pt.up.fe.comp2024.utils.Log;
 
 public class TypeUtils {
 
@@ -28,13 +30,49 @@ public class TypeUtils {
     }
 
     /**
-     * Gets the {@link Type} of an arbitrary expression.
+     * Gets the {@link Type} of an arbitrary expression, attributed beforehand if the expression has been typed by
+     * {@link #attributeTypes(JmmNode, JmmSymbolTable)}.
      *
      * @param expr
      * @param table
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            var type = jmmTable.getExprType(expr);
+            if (type != null) {
+                return type;
+            }
+        }
+
+        return computeExprType(expr, table);
+    }
+
+    /**
+     * Gives every expression of the tree its type, children first, so that each type is computed once and
+     * {@link #getExprType(JmmNode, SymbolTable)} finds it in the table afterwards.
+     * <p>
+     * Expressions whose type cannot be computed, e.g. because a variable is not declared, are left without one, so
+     * that getExprType computes it again and fails where it is used, as before. Expressions created by later
+     * transformations are typed when they are asked for.
+     */
+    public static void attributeTypes(JmmNode node, JmmSymbolTable table) {
+        for (var child : node.getChildren()) {
+            attributeTypes(child, table);
+        }
+
+        if (!Kind.fromString(node.getKind()).isExpr()) {
+            return;
+        }
+
+        try {
+            table.putExprType(node, computeExprType(node, table));
+        } catch (RuntimeException e) {
+            Log.trace(() -> "No type for " + node + ": " + e.getMessage());
+        }
+    }
+
+    private static Type computeExprType(JmmNode expr, SymbolTable table) {
 
         var kind = Kind.fromString(expr.getKind());
 
@@ -107,18 +145,13 @@ public class TypeUtils {
         } else if(objType.getName().equals("imported")){
             return new Type("imported", false);
         } else{
-            var imports = ((JmmSymbolTable)table).getImportsList();
-            for (var imps : imports) {
-                var imp = imps.get(imps.size() - 1);
-                if (imp.equals(objType.getName())) {
-                    return new Type("imported", false);
-                }
-                if(obj.getChild(0).getKind().equals(Kind.VAR_REF_EXPR.toString())){
-                    var varName = obj.getChild(0).get("name");
-                    if(varName.equals(imp)){
-                        return new Type("imported", false);
-                    }
-                }
+            var jmmTable = (JmmSymbolTable) table;
+            if (jmmTable.isImported(objType.getName())) {
+                return new Type("imported", false);
+            }
+            if (!jmmTable.getImportsList().isEmpty() && Kind.VAR_REF_EXPR.check(obj.getChild(0))
+                    && jmmTable.isImported(obj.getChild(0).get("name"))) {
+                return new Type("imported", false);
             }
         }
 
@@ -141,39 +174,9 @@ public class TypeUtils {
     private static Type getVarExprType(JmmNode varRefExpr, SymbolTable table) {
         String varName = varRefExpr.get("name");
 
-        Type t = null;
-        for (Symbol field : table.getFields()) {
-            if (field.getName().equals(varName))
-                t = field.getType();
-        }
-
-        JmmNode parent = varRefExpr.getJmmParent();
-        while (!parent.getKind().equals(Kind.METHOD_DECL.toString()) && !parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString())) {
-            parent = parent.getJmmParent();
-        }
-
-        for (Symbol param : table.getParameters(parent.get("name"))) {
-            if (param.getName().equals(varName)){
-                t = param.getType();
-                break;}
-        }
-
-        for (Symbol local : table.getLocalVariables(parent.get("name"))) {
-            if (local.getName().equals(varName)){
-                t = local.getType();
-                break;}
-        }
-
-        if(t != null){
-            return t;
-        }
-        var imps=table.getImports();
-        for (String imp : imps) {
-            var parts = imp.split("\\.");
-            var impName = parts[parts.length-1];
-            if (impName.equals(varName)) {
-                return new Type("imported", false);
-            }
+        var symbol = resolve(varName, varRefExpr, table);
+        if (symbol != null) {
+            return symbol.getType();
         }
 
         throw new RuntimeException("Variable '" + varName + "' not found in symbol table.");
@@ -193,77 +196,25 @@ public class TypeUtils {
         if(table.getClassName().equals(sourceType.getName())){
             return destinationType.getName().equals(table.getSuper());
         }
-        var imports = ((JmmSymbolTable)table).getImportsList();
-        var sImp=false;
-        var dImp=false;
-        for (var imps : imports) {
-            var imp=imps.get(imps.size()-1);
-            if (imp.equals(sourceType.getName())) {
-                sImp=true;
-            }
-            if (imp.equals(destinationType.getName())) {
-                dImp=true;
-            }
-        }
+        var jmmTable = (JmmSymbolTable) table;
+        var sImp = jmmTable.isImported(sourceType.getName());
+        var dImp = jmmTable.isImported(destinationType.getName());
 
         return (sourceType.getName().equals("imported")) || (sImp && dImp) || (sImp && destinationType.getName().equals("imported")) ;
 
     }
 
     public static Type getVarType(JmmNode varRefExpr, SymbolTable table){
-        //get method name
-        JmmNode parent = varRefExpr.getJmmParent();
-        while (!parent.getKind().equals(Kind.METHOD_DECL.toString()) && !parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString())) {
-            parent = parent.getJmmParent();
-        }
-        String methodName = parent.get("name");
-        for(var local:table.getLocalVariables(methodName)){
-            if(local.getName().equals(varRefExpr.get("name"))){
-                return local.getType();
-            }
-        }
-        for(var param:table.getParameters(methodName)){
-            if(param.getName().equals(varRefExpr.get("name"))){
-                return param.getType();
-            }
-        }
-        for(var field:table.getFields()){
-            if(field.getName().equals(varRefExpr.get("name"))){
-                return field.getType();
-            }
-        }
-        for(var imp:table.getImports()){
-            if(imp.equals(varRefExpr.get("name"))){
-                return new Type("imported", false);
-            }
-        }
-        return null;
-
-
+        return getVarType(varRefExpr.get("name"), varRefExpr, table);
     }
 
     public static Type getVarType(String varName, JmmNode node, SymbolTable table){
-        //get method name
-        JmmNode parent = node.getJmmParent();
-        while (!parent.getKind().equals(Kind.METHOD_DECL.toString()) && !parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString())) {
-            parent = parent.getJmmParent();
-        }
-        String methodName = parent.get("name");
-        for(var local:table.getLocalVariables(methodName)){
-            if(local.getName().equals(varName)){
-                return local.getType();
-            }
-        }
-        for(var param:table.getParameters(methodName)){
-            if(param.getName().equals(varName)){
-                return param.getType();
-            }
-        }
-        for(var field:table.getFields()){
-            if(field.getName().equals(varName)){
-                return field.getType();
-            }
+        var symbol = resolve(varName, node, table);
+        if (symbol != null && symbol.kind() != SymbolKind.IMPORT) {
+            return symbol.getType();
         }
+
+        // Unlike a variable reference, an import only matches here by its whole name
         for(var imp:table.getImports()){
             if(imp.equals(varName)){
                 return new Type("imported", false);
@@ -273,49 +224,32 @@ public class TypeUtils {
     }
 
     public static boolean isField(String varName, JmmNode node, SymbolTable table){
-        for(var field:table.getFields()){
-            if(field.getName().equals(varName)){
-                return !isLocal(varName, node, table) && !isParameter(varName, node, table);
-            }
-        }
-        return false;
+        var symbol = resolve(varName, node, table);
+        return symbol != null && symbol.kind() == SymbolKind.FIELD;
     }
 
     public static boolean isLocal(String varName, JmmNode node, SymbolTable table){
-        //get method name
-        JmmNode parent = node.getJmmParent();
-        while (!parent.getKind().equals(Kind.METHOD_DECL.toString()) && !parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString())) {
-            parent = parent.getJmmParent();
-        }
-        String methodName = parent.get("name");
-        for(var local:table.getLocalVariables(methodName)){
-            if(local.getName().equals(varName)){
-                return true;
-            }
-        }
-        return false;
+        var symbol = resolve(varName, node, table);
+        return symbol != null && symbol.kind() == SymbolKind.LOCAL;
     }
 
     public static boolean isParameter(String varName, JmmNode node, SymbolTable table){
-        //get method name
-        JmmNode parent = node.getJmmParent();
-        while (!parent.getKind().equals(Kind.METHOD_DECL.toString()) && !parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString())) {
-            parent = parent.getJmmParent();
-        }
-        String methodName = parent.get("name");
-        for(var param:table.getParameters(methodName)){
-            if(param.getName().equals(varName)){
-                return !isLocal(varName, node, table);
-            }
-        }
-        return false;
+        var symbol = resolve(varName, node, table);
+        return symbol != null && symbol.kind() == SymbolKind.PARAMETER;
+    }
+
+    /**
+     * Resolves a name in the scope of the method the node is in.
+     *
+     * @return the declaration of the name, or null if it is not declared
+     */
+    public static ResolvedSymbol resolve(String varName, JmmNode node, SymbolTable table) {
+        String methodName = getEnclosingMethod(node, table).get("name");
+        return ((JmmSymbolTable) table).resolve(methodName, varName);
     }
 
     public static boolean inMain(JmmNode node, SymbolTable table){
-        JmmNode parent = node.getJmmParent();
-        while (!parent.getKind().equals(Kind.METHOD_DECL.toString()) && !parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString())) {
-            parent = parent.getJmmParent();
-        }
+        JmmNode parent = getEnclosingMethod(node, table);
         return parent.getKind().equals(Kind.MAIN_METHOD_DECL.toString());
     }
 
@@ -327,6 +261,25 @@ public class TypeUtils {
 
     }
 
+    /**
+     * @return the declaration of the method the node is in, from the index of the symbol table if it has the node
+     */
+    public static JmmNode getEnclosingMethod(JmmNode node, SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            var method = jmmTable.getEnclosingMethod(node);
+            if (method != null) {
+                return method;
+            }
+        }
+
+        // Nodes created by the passes after the table was built are not in the index
+        JmmNode parent = node.getJmmParent();
+        while (!Kind.check(parent, Kind.METHOD_DECL, Kind.MAIN_METHOD_DECL)) {
+            parent = parent.getJmmParent();
+        }
+        return parent;
+    }
+
     public static Type getMethodReturnType(String methodName, SymbolTable table){
         for (String method : table.getMethods()) {
             if (method.equals(methodName))
@@ -0,0 +1,178 @@
+package pt.up.fe.comp2024.ast.typed;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.typed.TypedNode.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the typed AST straight from the contexts of {@link JavammParser}.
+ * <p>
+ * The generic conversion finds the kind, hierarchy and attributes of every node through reflection on the context
+ * classes, while this builder knows the grammar and reads the labeled tokens directly. The tree has the same nodes as
+ * the generic one, and identifiers with the same text share a single string.
+ */
+public class TypedAstBuilder {
+
+    private final Map<String, String> names = new HashMap<>();
+
+    public static JmmNode build(ParserRuleContext context) {
+        return new TypedAstBuilder().buildNode(context);
+    }
+
+    private JmmNodeImpl buildNode(ParserRuleContext context) {
+        var children = new ArrayList<JmmNodeImpl>();
+        if (context.children != null) {
+            for (var child : context.children) {
+                if (child instanceof ParserRuleContext childContext) {
+                    children.add(buildNode(childContext));
+                }
+            }
+        }
+
+        // An integer literal that does not fit in an int is left to the later stages, as with the generic conversion
+        if (context instanceof JavammParser.IntegerLiteralContext literal && !fitsInt(literal.value)) {
+            return newGenericNode(Kind.INTEGER_LITERAL, context, literal.value.getText());
+        }
+
+        var node = newNode(context);
+
+        var start = context.getStart();
+        var stop = context.getStop();
+        node.setPosition(start.getLine(), start.getCharPositionInLine(), stop.getLine(), stop.getCharPositionInLine());
+        node.addChildren(children);
+
+        return node;
+    }
+
+    private TypedNode newNode(ParserRuleContext context) {
+        if (context instanceof JavammParser.VarRefExprContext varRef) {
+            return new VarRefExpr(name(varRef.name));
+        }
+        if (context instanceof JavammParser.IntegerLiteralContext literal) {
+            return new IntegerLiteral(Integer.parseInt(literal.value.getText()));
+        }
+        if (context instanceof JavammParser.BinaryExprContext binary) {
+            return new BinaryExpr(BinaryExpr.Op.fromSymbol(binary.op.getText()));
+        }
+        if (context instanceof JavammParser.BooleanLiteralContext literal) {
+            return new BooleanLiteral(Boolean.parseBoolean(literal.value.getText()));
+        }
+        if (context instanceof JavammParser.MethodCallOnObjectExprContext call) {
+            return new MethodCallOnObjectExpr(name(call.method));
+        }
+        if (context instanceof JavammParser.LengthCallExprContext length) {
+            return new LengthCallExpr(name(length.length));
+        }
+        if (context instanceof JavammParser.ArrayAccessExprContext) {
+            return new ArrayAccessExpr();
+        }
+        if (context instanceof JavammParser.ParenExprContext) {
+            return new ParenExpr();
+        }
+        if (context instanceof JavammParser.ThisExprContext) {
+            return new ThisExpr();
+        }
+        if (context instanceof JavammParser.NewObjectExprContext newObject) {
+            return new NewObjectExpr(name(newObject.name));
+        }
+        if (context instanceof JavammParser.NewIntExprContext) {
+            return new NewIntExpr();
+        }
+        if (context instanceof JavammParser.ArrayValuesExprContext) {
+            return new ArrayValuesExpr();
+        }
+
+        if (context instanceof JavammParser.AssignStmtContext assign) {
+            return new AssignStmt(name(assign.name));
+        }
+        if (context instanceof JavammParser.AssignArrayStmtContext assign) {
+            return new AssignArrayStmt(name(assign.name));
+        }
+        if (context instanceof JavammParser.ExprStmtContext) {
+            return new ExprStmt();
+        }
+        if (context instanceof JavammParser.IfStmtContext) {
+            return new IfStmt();
+        }
+        if (context instanceof JavammParser.WhileStmtContext) {
+            return new WhileStmt();
+        }
+        if (context instanceof JavammParser.ScopeStmtContext) {
+            return new ScopeStmt();
+        }
+        if (context instanceof JavammParser.ReturnStmtContext) {
+            return new ReturnStmt();
+        }
+        if (context instanceof JavammParser.RetContext) {
+            return new Ret();
+        }
+
+        if (context instanceof JavammParser.TypeContext type) {
+            return new Type(name(type.name), type.isArray, type.varArg != null);
+        }
+        if (context instanceof JavammParser.VarDeclContext varDecl) {
+            return new VarDecl(name(varDecl.name));
+        }
+        if (context instanceof JavammParser.ParamContext param) {
+            return new Param(name(param.name));
+        }
+        if (context instanceof JavammParser.MethodDeclContext method) {
+            return new MethodDecl(name(method.name), method.isPublic);
+        }
+        if (context instanceof JavammParser.MainMethodDeclContext method) {
+            return new MainMethodDecl(name(method.name), method.isPublic, name(method.args));
+        }
+        if (context instanceof JavammParser.ClassDeclContext classDecl) {
+            return new ClassDecl(name(classDecl.name), name(classDecl.superName));
+        }
+        if (context instanceof JavammParser.ImpContext imp) {
+            return new Imp(imp.name.stream().map(this::name).toArray(String[]::new));
+        }
+        if (context instanceof JavammParser.ProgramContext) {
+            return new Program();
+        }
+
+        throw new RuntimeException("No typed node for context " + context.getClass().getSimpleName());
+    }
+
+    private String name(Token token) {
+        if (token == null) {
+            return null;
+        }
+
+        return names.computeIfAbsent(token.getText(), text -> text);
+    }
+
+    private static boolean fitsInt(Token token) {
+        try {
+            Integer.parseInt(token.getText());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static JmmNodeImpl newGenericNode(Kind kind, ParserRuleContext context, String value) {
+        var node = new JmmNodeImpl(kind.getNodeName());
+        node.setHierarchy(kind.getHierarchy());
+
+        var start = context.getStart();
+        var stop = context.getStop();
+        node.put(NodePosition.LINE_START.getString(), Integer.toString(start.getLine()));
+        node.put(NodePosition.COL_START.getString(), Integer.toString(start.getCharPositionInLine()));
+        node.put(NodePosition.LINE_END.getString(), Integer.toString(stop.getLine()));
+        node.put(NodePosition.COL_END.getString(), Integer.toString(stop.getCharPositionInLine()));
+        node.put("value", value);
+
+        return node;
+    }
+}
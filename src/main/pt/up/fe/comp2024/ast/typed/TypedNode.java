@@ -0,0 +1,980 @@
+package pt.up.fe.comp2024.ast.typed;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Node of the typed AST, with one class per {@link Kind}.
+ * <p>
+ * A {@link JmmNodeImpl} keeps its position and attributes as strings in a map. Each typed node class keeps the
+ * attributes of its kind as fields instead (identifiers as strings shared across the tree, literals and flags as
+ * primitives, operators as an enum), and the position as ints. Only the attributes the passes add, e.g. the types of
+ * expressions, go to the map.
+ * <p>
+ * The typed nodes are themselves the bridge to JmmNode: they answer the JmmNode API with the same kinds, hierarchies
+ * and attributes, in the same formats, as the generic ANTLR conversion, so the passes run on the typed tree without a
+ * second one. A pass can also use the typed accessors when it finds a typed node. Nodes the passes create, or copy
+ * with {@link #copyNode()}, are plain JmmNodeImpl, so a transformed tree may have both, and the children of a typed
+ * node are only known to be JmmNodes.
+ */
+public abstract class TypedNode extends JmmNodeImpl {
+
+    private static final List<String> POSITION = List.of(NodePosition.LINE_START.getString(),
+            NodePosition.COL_START.getString(), NodePosition.LINE_END.getString(), NodePosition.COL_END.getString());
+
+    private static final List<String> NAME = List.of("name");
+
+    private static final int NO_POSITION = -1;
+
+    private int lineStart = NO_POSITION;
+    private int colStart = NO_POSITION;
+    private int lineEnd = NO_POSITION;
+    private int colEnd = NO_POSITION;
+
+    protected TypedNode() {
+        // The kind and hierarchy are the strings shared by every node of the kind
+        super(null);
+        this.kind = getTypedKind().getNodeName();
+        this.hierarchy = getTypedKind().getHierarchy();
+    }
+
+    public abstract Kind getTypedKind();
+
+    public int getLineStart() {
+        return lineStart;
+    }
+
+    public int getColStart() {
+        return colStart;
+    }
+
+    public int getLineEnd() {
+        return lineEnd;
+    }
+
+    public int getColEnd() {
+        return colEnd;
+    }
+
+    /**
+     * @return true if the node has a position, which nodes created by the passes do not
+     */
+    public boolean hasPosition() {
+        return lineStart != NO_POSITION;
+    }
+
+    public void setPosition(int lineStart, int colStart, int lineEnd, int colEnd) {
+        this.lineStart = lineStart;
+        this.colStart = colStart;
+        this.lineEnd = lineEnd;
+        this.colEnd = colEnd;
+    }
+
+    void addChildren(List<? extends JmmNodeImpl> children) {
+        this.children = new ArrayList<>(children.size());
+        for (var child : children) {
+            add(child);
+        }
+    }
+
+    /**
+     * @return names of the attributes this kind keeps in fields, including the ones that may be absent
+     */
+    protected List<String> getFieldAttributes() {
+        return List.of();
+    }
+
+    /**
+     * @return value of an attribute kept in a field, in the format of the generic conversion, or null if the
+     * attribute is not kept in a field or is absent
+     */
+    protected Object getFieldAttribute(String attribute) {
+        return null;
+    }
+
+    /**
+     * Sets an attribute kept in a field, from a value in the format of the generic conversion.
+     *
+     * @return false if the attribute is not kept in a field
+     */
+    protected boolean setFieldAttribute(String attribute, Object value) {
+        return false;
+    }
+
+    @Override
+    public Collection<String> getAttributes() {
+        var attributes = new ArrayList<String>();
+
+        if (hasPosition()) {
+            attributes.addAll(POSITION);
+        }
+        for (var attribute : getFieldAttributes()) {
+            if (getFieldAttribute(attribute) != null) {
+                attributes.add(attribute);
+            }
+        }
+        attributes.addAll(super.getAttributes());
+
+        return attributes;
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        var position = POSITION.indexOf(attribute);
+        if (position != -1) {
+            return hasPosition();
+        }
+
+        return getFieldAttribute(attribute) != null || getAttributesMap().containsKey(attribute);
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        var position = POSITION.indexOf(attribute);
+        if (position != -1 && hasPosition()) {
+            return Integer.toString(getPosition(position));
+        }
+
+        var value = getFieldAttribute(attribute);
+        if (value != null) {
+            return value;
+        }
+
+        return super.getObject(attribute);
+    }
+
+    @Override
+    public Object putObject(String attribute, Object value) {
+        var position = POSITION.indexOf(attribute);
+        if (position != -1) {
+            var previous = hasPosition() ? Integer.toString(getPosition(position)) : null;
+            setPosition(position, Integer.parseInt(value.toString()));
+            return previous;
+        }
+
+        var previous = getFieldAttribute(attribute);
+        if (setFieldAttribute(attribute, value)) {
+            return previous;
+        }
+
+        return super.putObject(attribute, value);
+    }
+
+    private int getPosition(int index) {
+        return switch (index) {
+            case 0 -> lineStart;
+            case 1 -> colStart;
+            case 2 -> lineEnd;
+            default -> colEnd;
+        };
+    }
+
+    private void setPosition(int index, int value) {
+        switch (index) {
+            case 0 -> lineStart = value;
+            case 1 -> colStart = value;
+            case 2 -> lineEnd = value;
+            default -> colEnd = value;
+        }
+    }
+
+    public static class Program extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.PROGRAM;
+        }
+    }
+
+    public static class Imp extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("ID", "name");
+
+        private String[] path;
+
+        public Imp(String[] path) {
+            this.path = path;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.IMP;
+        }
+
+        public List<String> getPath() {
+            return List.of(path);
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return switch (attribute) {
+                case "ID" -> path[path.length - 1];
+                case "name" -> Arrays.asList(path);
+                default -> null;
+            };
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            if (!attribute.equals("name")) {
+                return false;
+            }
+
+            path = ((List<?>) value).stream().map(Object::toString).toArray(String[]::new);
+            return true;
+        }
+    }
+
+    public static class ClassDecl extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("name", "superName");
+
+        private String name;
+        private String superName;
+
+        public ClassDecl(String name, String superName) {
+            this.name = name;
+            this.superName = superName;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.CLASS_DECL;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return name of the class this one extends, or null if it does not extend any
+         */
+        public String getSuperName() {
+            return superName;
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return switch (attribute) {
+                case "name" -> name;
+                case "superName" -> superName;
+                default -> null;
+            };
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            switch (attribute) {
+                case "name" -> name = value.toString();
+                case "superName" -> superName = value.toString();
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Node whose only attribute is an identifier.
+     */
+    abstract static class NamedNode extends TypedNode {
+
+        private String name;
+
+        NamedNode(String name) {
+            this.name = name;
+        }
+
+        String getIdentifier() {
+            return name;
+        }
+
+        /**
+         * @return the attribute the identifier is kept under
+         */
+        List<String> getIdentifierAttribute() {
+            return NAME;
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return getIdentifierAttribute();
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return attribute.equals(getIdentifierAttribute().get(0)) ? name : null;
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            if (!attribute.equals(getIdentifierAttribute().get(0))) {
+                return false;
+            }
+
+            name = value.toString();
+            return true;
+        }
+    }
+
+    public static class VarDecl extends NamedNode {
+
+        public VarDecl(String name) {
+            super(name);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.VAR_DECL;
+        }
+
+        public String getName() {
+            return getIdentifier();
+        }
+
+        public JmmNode getType() {
+            return getChild(0);
+        }
+    }
+
+    public static class Type extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("isArray", "name", "varArg", "arr");
+
+        private String name;
+        private boolean isArray;
+        private boolean isVarArg;
+
+        public Type(String name, boolean isArray, boolean isVarArg) {
+            this.name = name;
+            this.isArray = isArray;
+            this.isVarArg = isVarArg;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.TYPE;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return true for 'int[]', false for 'int...', which is only flagged as a vararg
+         */
+        public boolean isArray() {
+            return isArray;
+        }
+
+        public boolean isVarArg() {
+            return isVarArg;
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return switch (attribute) {
+                case "isArray" -> isArray;
+                case "name" -> name;
+                case "varArg" -> isVarArg ? "..." : null;
+                case "arr" -> isArray ? "[" : null;
+                default -> null;
+            };
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            switch (attribute) {
+                case "isArray" -> isArray = Boolean.parseBoolean(value.toString());
+                case "name" -> name = value.toString();
+                case "varArg" -> isVarArg = true;
+                case "arr" -> isArray = true;
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static class MethodDecl extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("isPublic", "name");
+
+        private String name;
+        private boolean isPublic;
+
+        public MethodDecl(String name, boolean isPublic) {
+            this.name = name;
+            this.isPublic = isPublic;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.METHOD_DECL;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPublic() {
+            return isPublic;
+        }
+
+        public JmmNode getReturnType() {
+            return getChild(0);
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return switch (attribute) {
+                case "isPublic" -> isPublic;
+                case "name" -> name;
+                default -> null;
+            };
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            switch (attribute) {
+                case "isPublic" -> isPublic = Boolean.parseBoolean(value.toString());
+                case "name" -> name = value.toString();
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static class MainMethodDecl extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("isPublic", "isStatic", "name", "args");
+
+        private String name;
+        private boolean isPublic;
+        private String args;
+
+        public MainMethodDecl(String name, boolean isPublic, String args) {
+            this.name = name;
+            this.isPublic = isPublic;
+            this.args = args;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.MAIN_METHOD_DECL;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPublic() {
+            return isPublic;
+        }
+
+        /**
+         * @return name of the String[] parameter
+         */
+        public String getArgs() {
+            return args;
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return switch (attribute) {
+                case "isPublic" -> isPublic;
+                case "isStatic" -> "static";
+                case "name" -> name;
+                case "args" -> args;
+                default -> null;
+            };
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            switch (attribute) {
+                case "isPublic" -> isPublic = Boolean.parseBoolean(value.toString());
+                case "name" -> name = value.toString();
+                case "args" -> args = value.toString();
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static class Param extends NamedNode {
+
+        public Param(String name) {
+            super(name);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.PARAM;
+        }
+
+        public String getName() {
+            return getIdentifier();
+        }
+
+        public JmmNode getType() {
+            return getChild(0);
+        }
+    }
+
+    public static class AssignStmt extends NamedNode {
+
+        public AssignStmt(String name) {
+            super(name);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.ASSIGN_STMT;
+        }
+
+        public String getName() {
+            return getIdentifier();
+        }
+
+        public JmmNode getValue() {
+            return getChild(0);
+        }
+    }
+
+    public static class AssignArrayStmt extends NamedNode {
+
+        public AssignArrayStmt(String name) {
+            super(name);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.ASSIGN_ARRAY_STMT;
+        }
+
+        public String getName() {
+            return getIdentifier();
+        }
+
+        public JmmNode getIndex() {
+            return getChild(0);
+        }
+
+        public JmmNode getValue() {
+            return getChild(1);
+        }
+    }
+
+    public static class ScopeStmt extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.SCOPE_STMT;
+        }
+    }
+
+    public static class ExprStmt extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.EXPR_STMT;
+        }
+
+        public JmmNode getExpr() {
+            return getChild(0);
+        }
+    }
+
+    public static class IfStmt extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.IF_STMT;
+        }
+
+        public JmmNode getCondition() {
+            return getChild(0);
+        }
+    }
+
+    public static class WhileStmt extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.WHILE_STMT;
+        }
+
+        public JmmNode getCondition() {
+            return getChild(0);
+        }
+    }
+
+    public static class ReturnStmt extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.RETURN_STMT;
+        }
+
+        /**
+         * @return the returned expression, under the Ret node of the statement
+         */
+        public JmmNode getExpr() {
+            return getChild(0).getChild(0);
+        }
+    }
+
+    public static class Ret extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.RET;
+        }
+    }
+
+    public static class ParenExpr extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.PAREN_EXPR;
+        }
+
+        public JmmNode getExpr() {
+            return getChild(0);
+        }
+    }
+
+    public static class MethodCallOnObjectExpr extends NamedNode {
+
+        private static final List<String> METHOD = List.of("method");
+
+        public MethodCallOnObjectExpr(String method) {
+            super(method);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.METHOD_CALL_ON_OBJECT_EXPR;
+        }
+
+        @Override
+        List<String> getIdentifierAttribute() {
+            return METHOD;
+        }
+
+        public String getMethod() {
+            return getIdentifier();
+        }
+
+        public JmmNode getObject() {
+            return getChild(0);
+        }
+
+        public int getNumArguments() {
+            return getNumChildren() - 1;
+        }
+
+        public JmmNode getArgument(int index) {
+            return getChild(index + 1);
+        }
+    }
+
+    public static class LengthCallExpr extends NamedNode {
+
+        private static final List<String> LENGTH = List.of("length");
+
+        public LengthCallExpr(String length) {
+            super(length);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.LENGTH_CALL_EXPR;
+        }
+
+        @Override
+        List<String> getIdentifierAttribute() {
+            return LENGTH;
+        }
+
+        /**
+         * @return the identifier after the dot, which the grammar does not restrict to 'length'
+         */
+        public String getLength() {
+            return getIdentifier();
+        }
+
+        public JmmNode getArray() {
+            return getChild(0);
+        }
+    }
+
+    public static class ArrayAccessExpr extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.ARRAY_ACCESS_EXPR;
+        }
+
+        public JmmNode getArray() {
+            return getChild(0);
+        }
+
+        public JmmNode getIndex() {
+            return getChild(1);
+        }
+    }
+
+    public static class ArrayValuesExpr extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.ARRAY_VALUES_EXPR;
+        }
+    }
+
+    public static class NewIntExpr extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.NEW_INT_EXPR;
+        }
+
+        public JmmNode getSize() {
+            return getChild(0);
+        }
+    }
+
+    public static class NewObjectExpr extends NamedNode {
+
+        public NewObjectExpr(String name) {
+            super(name);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.NEW_OBJECT_EXPR;
+        }
+
+        public String getName() {
+            return getIdentifier();
+        }
+    }
+
+    public static class BinaryExpr extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("op");
+
+        public enum Op {
+            NOT("!"), MUL("*"), DIV("/"), ADD("+"), SUB("-"), LT("<"), AND("&&");
+
+            private final String symbol;
+
+            Op(String symbol) {
+                this.symbol = symbol;
+            }
+
+            public String getSymbol() {
+                return symbol;
+            }
+
+            public static Op fromSymbol(String symbol) {
+                for (var op : values()) {
+                    if (op.symbol.equals(symbol)) {
+                        return op;
+                    }
+                }
+                throw new RuntimeException("Unknown binary operator '" + symbol + "'");
+            }
+        }
+
+        private Op op;
+
+        public BinaryExpr(Op op) {
+            this.op = op;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.BINARY_EXPR;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        /**
+         * @return the operand of '!', or the left operand of the other operators
+         */
+        public JmmNode getLeft() {
+            return getChild(0);
+        }
+
+        public JmmNode getRight() {
+            return getChild(1);
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return attribute.equals("op") ? op.getSymbol() : null;
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            if (!attribute.equals("op")) {
+                return false;
+            }
+
+            op = Op.fromSymbol(value.toString());
+            return true;
+        }
+    }
+
+    public static class ThisExpr extends TypedNode {
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.THIS_EXPR;
+        }
+    }
+
+    public static class VarRefExpr extends NamedNode {
+
+        public VarRefExpr(String name) {
+            super(name);
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.VAR_REF_EXPR;
+        }
+
+        public String getName() {
+            return getIdentifier();
+        }
+    }
+
+    public static class BooleanLiteral extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("value");
+
+        private boolean value;
+
+        public BooleanLiteral(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.BOOLEAN_LITERAL;
+        }
+
+        public boolean getValue() {
+            return value;
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return attribute.equals("value") ? Boolean.toString(value) : null;
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            if (!attribute.equals("value")) {
+                return false;
+            }
+
+            this.value = Boolean.parseBoolean(value.toString());
+            return true;
+        }
+    }
+
+    public static class IntegerLiteral extends TypedNode {
+
+        private static final List<String> ATTRIBUTES = List.of("value");
+
+        private int value;
+
+        public IntegerLiteral(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public Kind getTypedKind() {
+            return Kind.INTEGER_LITERAL;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        protected List<String> getFieldAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        protected Object getFieldAttribute(String attribute) {
+            return attribute.equals("value") ? Integer.toString(value) : null;
+        }
+
+        @Override
+        protected boolean setFieldAttribute(String attribute, Object value) {
+            if (!attribute.equals("value")) {
+                return false;
+            }
+
+            this.value = Integer.parseInt(value.toString());
+            return true;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.utils.Instrumentation;
 
 public class JasminBackendImpl implements JasminBackend {
 
@@ -10,7 +11,7 @@ public class JasminBackendImpl implements JasminBackend {
     public JasminResult toJasmin(OllirResult ollirResult) {
 
         var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
+        var jasminCode = Instrumentation.measure("build", jasminGenerator::build);
 
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
@@ -4,6 +4,7 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.Log;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.StringLines;
@@ -99,7 +100,7 @@ public class JasminGenerator {
         for(var method : classUnit.getMethods()){
             if(method.isConstructMethod() && method.getParams().isEmpty()){
                 hasDefaultConstructor = true;
-                System.out.println("Default constructor found in the class methods.");
+                Log.debug(() -> "Default constructor found in the class methods.");
                 break;
             }
         }
@@ -137,7 +138,7 @@ public class JasminGenerator {
             .end method
             """, classSuper);
             code.append(defaultConstructor);
-            System.out.println("Default constructor added.");
+            Log.debug(() -> "Default constructor added.");
 
         }
         // generate code for all other methods
@@ -508,7 +509,6 @@ public class JasminGenerator {
             }
             case arraylength -> {
                 //this.decrementStackCounter(num_parameters);
-                System.out.println("generateCall");
                 code.append(generators.apply(call.getOperands().get(0)));
                 code.append("arraylength").append(NL);
             }
@@ -701,13 +701,15 @@ public class JasminGenerator {
         return classname;
     }
     private int getLimitLocals(Method method) {
-        Set<Integer> virtualRegs = new TreeSet<>();
-        virtualRegs.add(0); // init, base case
+        // Variables may share a register after register allocation, and fields have none
+        int maxReg = 0; // init, base case
 
         for (Descriptor variable : method.getVarTable().values()) {
-            virtualRegs.add(variable.getVirtualReg());
+            if (variable.getScope() != VarScope.FIELD) {
+                maxReg = Math.max(maxReg, variable.getVirtualReg());
+            }
         }
-        return virtualRegs.size();
+        return maxReg + 1;
     }
     private void updateStackCounter(int value) {
         stack_counter += value;
@@ -774,7 +776,7 @@ public class JasminGenerator {
         var code = new StringBuilder();
         Instruction condition = branch.getCondition();
         String operation = null;
-        System.out.println("generateBranch " + branch.getLabel());
+        Log.trace(() -> "generateBranch " + branch.getLabel());
         switch (branch.getInstType()){
             case UNARYOPER -> {
                 UnaryOpInstruction unaryInstruction = (UnaryOpInstruction) condition;
@@ -843,7 +845,6 @@ public class JasminGenerator {
                         }
                     }
                     case ANDB -> {
-                        System.out.println("ANDB");
                         operation = "ifne";
                         code.append(generators.apply(binaryOp));
                         break;
@@ -860,7 +861,7 @@ public class JasminGenerator {
             }
         }
 
-        System.out.println("generateBranch " + branch.getLabel());
+        Log.trace(() -> "generateBranch " + branch.getLabel());
         code.append(TAB).append(operation).append(" ").append(branch.getLabel()).append(NL);
         return code.toString();
     }
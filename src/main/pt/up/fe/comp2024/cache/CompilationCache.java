@@ -0,0 +1,344 @@
+package pt.up.fe.comp2024.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import jasmin.ClassFile;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.JmmCompiler;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache from (compiler version, options, source) to the generated OLLIR and Jasmin code, and the reports of
+ * the compilation.
+ * <p>
+ * Entries are written to a temporary file and then atomically moved into place, so several compilers can share a
+ * directory. Reading an entry refreshes its modification time, which is what eviction uses to drop the least
+ * recently used entries once the directory grows past its size limit. Temporary files left by writers that crashed
+ * are removed by eviction too.
+ */
+public class CompilationCache {
+
+    private static final String ENTRY_EXTENSION = ".json";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String OLLIR = "ollir";
+    private static final String JASMIN = "jasmin";
+    private static final String REPORTS = "reports";
+
+    /**
+     * Age after which a temporary file is no longer being written, but was left by a writer that crashed.
+     */
+    private static final long STALE_TEMP_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * A class of the compiler and of each library that takes part in generating or assembling the code.
+     */
+    private static final List<Class<?>> VERSIONED_CLASSES = List.of(JmmCompiler.class, OllirResult.class,
+            ClassUnit.class, ClassFile.class, SpecsIo.class);
+
+    private static final Map<CacheId, CompilationCache> CACHES = new ConcurrentHashMap<>();
+
+    private static volatile String compilerVersion;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong sizeEstimate;
+    private final Gson gson = new Gson();
+
+    private CompilationCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create cache directory '" + directory + "'", e);
+        }
+
+        this.sizeEstimate = new AtomicLong(listFiles().stream().mapToLong(this::sizeOf).sum());
+    }
+
+    /**
+     * @return the cache for the given directory and size limit, shared by every compilation in this JVM
+     */
+    public static CompilationCache forDirectory(Path directory, long maxBytes) {
+        return CACHES.computeIfAbsent(new CacheId(directory.toAbsolutePath().normalize(), maxBytes),
+                id -> new CompilationCache(id.directory(), id.maxBytes()));
+    }
+
+    /**
+     * Builds the key of a unit. Only the options that change the generated code take part in it.
+     */
+    public static String key(String code, Map<String, String> options) {
+        var digest = newDigest();
+
+        update(digest, getCompilerVersion());
+        options.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(option -> update(digest, option.getKey() + "=" + option.getValue()));
+        update(digest, code);
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Optional<CachedUnit> get(String key) {
+        var entry = entryPath(key);
+
+        try {
+            var json = gson.fromJson(Files.readString(entry, StandardCharsets.UTF_8), JsonObject.class);
+            if (json == null || !json.has(OLLIR) || !json.has(JASMIN)) {
+                return Optional.empty();
+            }
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+
+            var reports = new ArrayList<Report>();
+            if (json.has(REPORTS)) {
+                for (var report : gson.fromJson(json.get(REPORTS), CachedReport[].class)) {
+                    reports.add(report.toReport());
+                }
+            }
+
+            return Optional.of(new CachedUnit(json.get(OLLIR).getAsString(), json.get(JASMIN).getAsString(),
+                    reports));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            // Unreadable entries are treated as misses, the next put overwrites them
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, String ollirCode, String jasminCode, List<Report> reports) {
+        var json = new JsonObject();
+        json.addProperty(OLLIR, ollirCode);
+        json.addProperty(JASMIN, jasminCode);
+        json.add(REPORTS, gson.toJsonTree(reports.stream().map(CachedReport::of).toList()));
+        var bytes = gson.toJson(json).getBytes(StandardCharsets.UTF_8);
+
+        var entry = entryPath(key);
+        long replaced;
+        try {
+            Files.createDirectories(entry.getParent());
+            replaced = Files.exists(entry) ? sizeOf(entry) : 0;
+            var temp = Files.createTempFile(entry.getParent(), key, TEMP_EXTENSION);
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The cache is only an accelerator, failing to store an entry must not fail the compilation
+            return;
+        }
+
+        if (sizeEstimate.addAndGet(bytes.length - replaced) > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * @return the estimated size of the entries, updated by each put and set to the actual size by each eviction
+     */
+    long getSizeEstimate() {
+        return sizeEstimate.get();
+    }
+
+    /**
+     * Removes the stale temporary files, then the least recently used entries until the cache is at 3/4 of its
+     * limit, leaving room for new entries before the next eviction.
+     */
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        long total = 0;
+        var entries = new ArrayList<EntryInfo>();
+        for (var file : listFiles()) {
+            try {
+                var info = new EntryInfo(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+                if (!file.toString().endsWith(TEMP_EXTENSION)) {
+                    entries.add(info);
+                } else if (now - info.lastUsed() > STALE_TEMP_MILLIS) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                total += info.size();
+            } catch (IOException e) {
+                // removed by another compiler meanwhile
+            }
+        }
+
+        long target = maxBytes / 4 * 3;
+
+        entries.sort(Comparator.comparingLong(EntryInfo::lastUsed));
+        for (var entry : entries) {
+            if (total <= target) {
+                break;
+            }
+
+            try {
+                Files.deleteIfExists(entry.path());
+            } catch (IOException e) {
+                continue;
+            }
+            total -= entry.size();
+        }
+
+        sizeEstimate.set(total);
+    }
+
+    /**
+     * @return the entries, and the temporary files of the entries being written
+     */
+    private List<Path> listFiles() {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(path -> path.toString().endsWith(ENTRY_EXTENSION)
+                    || path.toString().endsWith(TEMP_EXTENSION)).toList();
+        } catch (IOException | UncheckedIOException e) {
+            return List.of();
+        }
+    }
+
+    private long sizeOf(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Entries are spread over subdirectories named after the first two characters of the key.
+     */
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_EXTENSION);
+    }
+
+    /**
+     * The version is a hash of the compiler classes and of the libraries it generates code with, so that any change to
+     * the compiler, or to the OLLIR or Jasmin libraries, invalidates the cache.
+     */
+    private static String getCompilerVersion() {
+        if (compilerVersion == null) {
+            compilerVersion = computeCompilerVersion();
+        }
+
+        return compilerVersion;
+    }
+
+    private static String computeCompilerVersion() {
+        var digest = newDigest();
+
+        try {
+            var locations = new LinkedHashSet<Path>();
+            for (var versionedClass : VERSIONED_CLASSES) {
+                var codeSource = versionedClass.getProtectionDomain().getCodeSource();
+                if (codeSource == null) {
+                    throw new RuntimeException("Could not find the classes of " + versionedClass.getName()
+                            + " to compute the cache version");
+                }
+                locations.add(Path.of(codeSource.getLocation().toURI()));
+            }
+
+            for (var location : locations) {
+                update(digest, location.getFileName().toString());
+                hashClasses(digest, location);
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException("Could not compute the compiler version for the cache", e);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a jar, or every class file below a directory of classes.
+     */
+    private static void hashClasses(MessageDigest digest, Path location) throws IOException {
+        List<Path> files;
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> paths = Files.walk(location)) {
+                files = paths.filter(path -> path.toString().endsWith(".class")).sorted().toList();
+            }
+        } else {
+            files = List.of(location);
+        }
+
+        for (var file : files) {
+            try (InputStream stream = Files.newInputStream(file)) {
+                digest.update(stream.readAllBytes());
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        // Length prefix, so that the concatenation of the fields is unambiguous
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private record CacheId(Path directory, long maxBytes) {
+    }
+
+    private record EntryInfo(Path path, long size, long lastUsed) {
+    }
+
+    /**
+     * A report as stored in an entry, without its exception.
+     */
+    private record CachedReport(ReportType type, Stage stage, int line, int column, String message) {
+
+        static CachedReport of(Report report) {
+            return new CachedReport(report.getType(), report.getStage(), report.getLine(), report.getColumn(),
+                    report.getMessage());
+        }
+
+        Report toReport() {
+            return new Report(type, stage, line, column, message);
+        }
+    }
+
+    /**
+     * The code generated for a unit by a previous compilation, and the reports of that compilation.
+     */
+    public record CachedUnit(String ollirCode, String jasminCode, List<Report> reports) {
+    }
+}
@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.SingleOpInstruction;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.Liveness;
+import pt.up.fe.comp2024.optimization.dataflow.Variables;
+
+import java.util.BitSet;
+
+/**
+ * Pairs of variables of a method that cannot share a register, because one is written while the other is live.
+ * <p>
+ * A copy from one variable to another does not make them interfere, since both hold the same value afterwards, and
+ * the variables live at the start of the method, the parameters, all interfere with each other.
+ */
+public class InterferenceGraph {
+
+    private final BitSet[] neighbours;
+
+    private InterferenceGraph(FlowGraph graph, Variables variables, Liveness liveness) {
+        neighbours = new BitSet[variables.size()];
+        for (int i = 0; i < neighbours.length; i++) {
+            neighbours[i] = new BitSet(neighbours.length);
+        }
+
+        if (graph.size() > 0) {
+            var atEntry = liveness.getBefore(0);
+            atEntry.stream().forEach(variable -> addEdges(variable, atEntry, -1));
+        }
+
+        for (int i = 0; i < graph.size(); i++) {
+            var live = liveness.getAfter(i);
+            int copied = getCopySource(graph, variables, i);
+            variables.getDefs(i).stream().forEach(defined -> addEdges(defined, live, copied));
+        }
+    }
+
+    public static InterferenceGraph build(FlowGraph graph, Variables variables, Liveness liveness) {
+        return new InterferenceGraph(graph, variables, liveness);
+    }
+
+    public int size() {
+        return neighbours.length;
+    }
+
+    /**
+     * @return the variables that interfere with the variable; must not be changed
+     */
+    public BitSet getNeighbours(int variable) {
+        return neighbours[variable];
+    }
+
+    public int getDegree(int variable) {
+        return neighbours[variable].cardinality();
+    }
+
+    private void addEdges(int variable, BitSet others, int except) {
+        others.stream().forEach(other -> {
+            if (other != variable && other != except) {
+                neighbours[variable].set(other);
+                neighbours[other].set(variable);
+            }
+        });
+    }
+
+    /**
+     * @return the variable the instruction copies into another, or -1 if it is not a copy between variables
+     */
+    private static int getCopySource(FlowGraph graph, Variables variables, int instruction) {
+        if (graph.getInstruction(instruction) instanceof AssignInstruction assign
+                && assign.getRhs() instanceof SingleOpInstruction copy
+                && copy.getSingleOperand() instanceof Operand source
+                && !(source instanceof ArrayOperand)) {
+            return variables.getIndex(source.getName());
+        }
+
+        return -1;
+    }
+}
@@ -3,6 +3,8 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.utils.Instrumentation;
 
 import java.util.Collections;
 
@@ -20,7 +22,13 @@ public class JmmOptimizationImpl implements JmmOptimization {
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
 
-        //TODO: Do your OLLIR-based optimizations here
+        // Registers are allocated with '-r', as few as possible for 0, and at most n for n
+        int maxRegisters = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
+        if (maxRegisters >= 0) {
+            var reports = Instrumentation.measure("registerAllocation",
+                    () -> new RegisterAllocator(maxRegisters).allocate(ollirResult.getOllirClass()));
+            ollirResult.getReports().addAll(reports);
+        }
 
         return ollirResult;
     }
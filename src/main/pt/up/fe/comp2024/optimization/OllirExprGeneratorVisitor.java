@@ -8,6 +8,7 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.utils.Log;
 
 import java.sql.Array;
 
@@ -26,6 +27,8 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
     private final SymbolTable table;
 
+    private final TempAllocator temps;
+
     private int ifCounter = -1;
 
     protected int ifnumber (){
@@ -34,8 +37,9 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
     }
 
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    public OllirExprGeneratorVisitor(SymbolTable table, TempAllocator temps) {
         this.table = table;
+        this.temps = temps;
 
         buildVisitor();
     }
@@ -67,7 +71,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         computation.append(object.getComputation());
 
-        var temp = OptUtils.getTemp() + ".i32";
+        var temp = temps.getTemp() + ".i32";
         computation.append(temp)
                 .append(SPACE)
                 .append(ASSIGN)
@@ -95,7 +99,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         String[] lhsCode = lhs.getCode().split("\\.");
 
-        var temp = OptUtils.getTemp() + ".i32";
+        var temp = temps.getTemp() + ".i32";
         computation.append(temp)
                 .append(SPACE)
                 .append(ASSIGN)
@@ -119,7 +123,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         var values = jmmNode.getChildren();
         var size = values.size();
 
-        var temp = OptUtils.getTemp();
+        var temp = temps.getTemp();
         Type type = TypeUtils.getExprType(jmmNode, table);
         var typeStr = OptUtils.toOllirType(type);
         computation.append(temp)
@@ -187,7 +191,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
             Type resType = TypeUtils.getExprType(node, table);
             String resOllirType = OptUtils.toOllirType(resType);
-            String ret = OptUtils.getTemp() + resOllirType;
+            String ret = temps.getTemp() + resOllirType;
             code = code + ret;
 
             computation.append(code).append(SPACE)
@@ -217,7 +221,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             computation.append(rhs.getComputation());
 
             computation.append("if (").append(lhs.getCode()).append(" ").append(" <").append(".bool ").append(rhs.getCode()).append(") goto ").append("if").append(ifnumber()).append(END_STMT);
-            var temp3 = OptUtils.getTemp() + OptUtils.toOllirType(TypeUtils.getExprType(node, table));
+            var temp3 = temps.getTemp() + OptUtils.toOllirType(TypeUtils.getExprType(node, table));
             computation.append("\t").append(temp3).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append("0").append(".bool").append(END_STMT);
             computation.append("\tgoto endif").append(ifCounter).append(END_STMT);
 
@@ -238,7 +242,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             StringBuilder computation = new StringBuilder();
             var ifN = ifnumber();
 
-            var temp = OptUtils.getTemp() + OptUtils.toOllirType(TypeUtils.getExprType(node, table));
+            var temp = temps.getTemp() + OptUtils.toOllirType(TypeUtils.getExprType(node, table));
             computation.append(lhs.getComputation());
             computation.append("if (").append(lhs.getCode()).append(") goto ").append("if").append(ifN).append(END_STMT);
             computation.append("\t").append(temp).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append("0").append(".bool").append(END_STMT);
@@ -266,7 +270,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         Type resType = TypeUtils.getExprType(node, table);
         String resOllirType = OptUtils.toOllirType(resType);
-        String ret = OptUtils.getTemp() + resOllirType;
+        String ret = temps.getTemp() + resOllirType;
         code = code + ret;
 
         computation.append(code).append(SPACE)
@@ -300,8 +304,8 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         Type type = TypeUtils.getExprType(node, table);
         String ollirType = OptUtils.toOllirType(type);
         if(isField(node.get("name"), node, table)){
-            var temp = OptUtils.getTemp() + ollirType;
-            computation.append(temp).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE).append("getfield(this, ").append(node.get("name")).append(")").append(ollirType).append(END_STMT);
+            var temp = temps.getTemp() + ollirType;
+            computation.append(temp).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE).append("getfield(this, ").append(node.get("name")).append(ollirType).append(")").append(ollirType).append(END_STMT);
             code.append(temp);
         }
         else{
@@ -309,7 +313,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             code.append(id).append(ollirType);
         }
 
-        return new OllirExprResult(code.toString());
+        return new OllirExprResult(code.toString(), computation);
     }
 
     private boolean isObject(JmmNode node){
@@ -385,7 +389,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         }
 
         if(methodName.equals("println")){
-            System.out.println("papi " + node.getJmmParent().getKind());
+            Log.trace(() -> "println call in " + node.getJmmParent().getKind());
         }
 
         if(node.getJmmParent().getKind().equals(METHOD_DECL.toString()) || node.getJmmParent().getKind().equals(IF_STMT.toString()) || node.getJmmParent().getKind().equals(WHILE_STMT.toString())
@@ -393,7 +397,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             code.append(invoke).append(END_STMT);
         }
         else{
-            var temp = OptUtils.getTemp() + OptUtils.toOllirType(TypeUtils.getExprType(node, table));
+            var temp = temps.getTemp() + OptUtils.toOllirType(TypeUtils.getExprType(node, table));
             computation.append(temp).append(SPACE).append(ASSIGN).append(OptUtils.toOllirType(TypeUtils.getExprType(node, table))).append(SPACE).append(invoke).append(END_STMT);
             code.append(temp);
         }
@@ -415,7 +419,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         var code = new StringBuilder();
         var computation = new StringBuilder();
 
-        var temp = OptUtils.getTemp() + OptUtils.toOllirType(new Type(name, false));
+        var temp = temps.getTemp() + OptUtils.toOllirType(new Type(name, false));
         computation.append(temp).
                 append(SPACE).
                 append(ASSIGN).
@@ -9,6 +9,8 @@ import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.utils.Log;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -28,6 +30,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final SymbolTable table;
 
+    private final TempAllocator temps;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
     private int whileCounter = -1;
@@ -39,7 +43,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     public OllirGeneratorVisitor(SymbolTable table) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.temps = new TempAllocator();
+        exprVisitor = new OllirExprGeneratorVisitor(table, temps);
     }
 
 
@@ -181,11 +186,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitReturn(JmmNode node, Void unused) {
         StringBuilder code = new StringBuilder();
         var ret = exprVisitor.visit(node.getJmmChild(0).getJmmChild(0));
-        System.out.println("node: " + node.getJmmChild(0).getJmmChild(0));
-        var parent = node.getParent();
-        while (!parent.getKind().equals(METHOD_DECL.toString()) && !parent.getKind().equals(MAIN_METHOD_DECL.toString())){
-            parent = parent.getParent();
-        }
+        Log.trace(() -> "return expression: " + node.getJmmChild(0).getJmmChild(0));
+        var parent = TypeUtils.getEnclosingMethod(node, table);
         String methodName = parent.get("name");
         Type retType = table.getReturnType(methodName);
         String typeStr = OptUtils.toOllirType(retType);
@@ -196,7 +198,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                 .append(ret.getCode())
                 .append(END_STMT);
 
-        System.out.println("Return: " + code.toString());
+        Log.trace(() -> "return: " + code);
         return code.toString();
     }
 
@@ -224,6 +226,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitMainDecl(JmmNode node, Void unused) {
 
+        temps.reset();
+
         StringBuilder code = new StringBuilder(".method ");
 
         boolean isPublic = NodeUtils.getBooleanAttribute(node, "isPublic", "false");
@@ -261,6 +265,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitMethodDecl(JmmNode node, Void unused) {
 
+        temps.reset();
+
         StringBuilder code = new StringBuilder(".method ");
 
         boolean isPublic = NodeUtils.getBooleanAttribute(node, "isPublic", "false");
@@ -367,7 +373,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             code.append(visit(child));
         }
 
-        System.out.println("Code" + code);
+        Log.trace(() -> "code: " + code);
         return code.toString();
     }
 
@@ -376,11 +382,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         importStmt.append(IMPORT);
 
 
-        for (var importID : table.getImports()) {
-            String a = getLastSegment(importID);
-            if (a.equals(node.get("ID"))) {
-                importStmt.append(importID);
-            }
+        for (var importID : ((JmmSymbolTable) table).getImports(node.get("ID"))) {
+            importStmt.append(importID);
         }
 
 
@@ -390,14 +393,6 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         return importStmt.toString();
     }
 
-    public String getLastSegment(String importString) {
-        // Split the import string by '.'
-        String[] segments = importString.split("\\.");
-
-        // Return the last segment
-        return segments[segments.length - 1];
-    }
-
     /**
      * Default visitor. Visits every child node and return an empty string.
      *
@@ -0,0 +1,139 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.Liveness;
+import pt.up.fe.comp2024.optimization.dataflow.Variables;
+import pt.up.fe.comp2024.utils.Log;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Gives the variables of each method of an OLLIR class the JVM local variables they are stored in, sharing them
+ * between variables that are never live at the same time.
+ * <p>
+ * The interference graph of the method is colored greedily, in smallest-last order: the variable with the fewest
+ * neighbours is colored last, after all the others, so that it is the one most likely to find a free color. This and
+ * the parameters keep the registers the JVM passes them in, and the other variables take the lowest register none of
+ * their neighbours has, which may be that of a parameter no longer live. The virtual registers of the var table of the
+ * method are then replaced by the colors.
+ */
+public class RegisterAllocator {
+
+    private final int maxRegisters;
+
+    /**
+     * @param maxRegisters the most registers a method can use, or 0 to use as few as possible
+     */
+    public RegisterAllocator(int maxRegisters) {
+        this.maxRegisters = maxRegisters;
+    }
+
+    /**
+     * @return an error report for each method that needs more registers than allowed, whose registers are not changed
+     */
+    public List<Report> allocate(ClassUnit classUnit) {
+        var reports = new ArrayList<Report>();
+        for (var method : classUnit.getMethods()) {
+            var report = allocate(method);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+
+    private Report allocate(Method method) {
+        var graph = FlowGraph.of(method);
+        var variables = Variables.of(graph);
+        var liveness = new Liveness(graph, variables);
+        liveness.solve();
+        var interference = InterferenceGraph.build(graph, variables, liveness);
+
+        var varTable = method.getVarTable();
+        var colors = new int[variables.size()];
+        var fixed = new boolean[variables.size()];
+        for (int i = 0; i < variables.size(); i++) {
+            var descriptor = varTable.get(variables.getName(i));
+            fixed[i] = descriptor.getScope() == VarScope.PARAMETER || variables.getName(i).equals("this");
+            colors[i] = fixed[i] ? descriptor.getVirtualReg() : -1;
+        }
+
+        var order = getSmallestLastOrder(interference, fixed);
+        for (int i = order.size() - 1; i >= 0; i--) {
+            int variable = order.get(i);
+            var taken = new BitSet();
+            interference.getNeighbours(variable).stream()
+                    .filter(neighbour -> colors[neighbour] >= 0)
+                    .forEach(neighbour -> taken.set(colors[neighbour]));
+            colors[variable] = taken.nextClearBit(0);
+        }
+
+        int registers = 0;
+        for (int color : colors) {
+            registers = Math.max(registers, color + 1);
+        }
+
+        if (maxRegisters > 0 && registers > maxRegisters) {
+            return Report.newError(Stage.OPTIMIZATION,
+                    -1,
+                    -1,
+                    "Method '" + method.getMethodName() + "' needs " + registers
+                            + " registers, more than the " + maxRegisters + " allowed",
+                    null);
+        }
+
+        for (int i = 0; i < variables.size(); i++) {
+            varTable.get(variables.getName(i)).setVirtualReg(colors[i]);
+        }
+
+        int allocated = registers;
+        Log.debug(() -> "Allocated " + variables.size() + " variables of method " + method.getMethodName() + " to "
+                + allocated + " registers");
+        return null;
+    }
+
+    /**
+     * @return the variables that are not fixed, each removed after those with fewer neighbours still in the graph
+     */
+    private static List<Integer> getSmallestLastOrder(InterferenceGraph interference, boolean[] fixed) {
+        var degrees = new int[interference.size()];
+        var removed = new boolean[interference.size()];
+
+        // Degree in the high half and variable in the low half, with entries left behind when a degree drops
+        var queue = new PriorityQueue<Long>();
+        for (int i = 0; i < interference.size(); i++) {
+            if (!fixed[i]) {
+                degrees[i] = interference.getDegree(i);
+                queue.add(((long) degrees[i] << 32) | i);
+            }
+        }
+
+        var order = new ArrayList<Integer>();
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int variable = (int) entry;
+            if (removed[variable] || degrees[variable] != (int) (entry >>> 32)) {
+                continue;
+            }
+
+            removed[variable] = true;
+            order.add(variable);
+            interference.getNeighbours(variable).stream()
+                    .filter(neighbour -> !fixed[neighbour] && !removed[neighbour])
+                    .forEach(neighbour -> {
+                        degrees[neighbour]--;
+                        queue.add(((long) degrees[neighbour] << 32) | neighbour);
+                    });
+        }
+
+        return order;
+    }
+}
@@ -0,0 +1,37 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Hands out names for OLLIR temporaries.
+ * <p>
+ * One instance per compilation, shared by the statement and expression visitors. Numbering restarts at every method,
+ * since temporaries are method locals, which keeps names short and the output independent of other compilations.
+ */
+public class TempAllocator {
+
+    private static final String DEFAULT_PREFIX = "tmp";
+
+    private int tempNumber = -1;
+
+    public String getTemp() {
+
+        return getTemp(DEFAULT_PREFIX);
+    }
+
+    public String getTemp(String prefix) {
+
+        return prefix + getNextTempNum();
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+
+    /**
+     * Restarts numbering, called when a new method starts.
+     */
+    public void reset() {
+        tempNumber = -1;
+    }
+}
@@ -0,0 +1,151 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * Iterative dataflow analysis over the instructions of an OLLIR method, with the facts of each point in a bitset.
+ * <p>
+ * Subclasses give the direction, how the facts of several paths meet, the facts at the boundary (before the entry of
+ * a forward analysis, or after the exits of a backward one), the initial facts of the other points, and how each
+ * instruction transforms the facts. The facts before and after each instruction are then computed with a worklist,
+ * revisiting only the instructions whose inputs changed, until nothing changes.
+ */
+public abstract class DataflowAnalysis {
+
+    public enum Direction {
+        FORWARD, BACKWARD
+    }
+
+    public enum Meet {
+        /**
+         * A fact holds if it holds on any path, e.g. liveness or reaching definitions.
+         */
+        UNION,
+        /**
+         * A fact holds if it holds on all paths, e.g. available expressions.
+         */
+        INTERSECTION
+    }
+
+    protected final FlowGraph graph;
+    private final Direction direction;
+    private final Meet meet;
+
+    private BitSet[] before;
+    private BitSet[] after;
+
+    protected DataflowAnalysis(FlowGraph graph, Direction direction, Meet meet) {
+        this.graph = graph;
+        this.direction = direction;
+        this.meet = meet;
+    }
+
+    /**
+     * @return the facts before the entry of a forward analysis, or after the exits of a backward one
+     */
+    protected abstract BitSet getBoundary();
+
+    /**
+     * @return the facts of a point before it is computed, usually empty for a union and all the facts for an
+     * intersection
+     */
+    protected abstract BitSet getInitial();
+
+    /**
+     * @param input the facts before the instruction in a forward analysis, or after it in a backward one; must not be
+     *              changed
+     * @return the facts on the other side of the instruction
+     */
+    protected abstract BitSet transfer(int instruction, BitSet input);
+
+    /**
+     * Computes the facts before and after every instruction.
+     *
+     * @return this analysis
+     */
+    public DataflowAnalysis solve() {
+        int size = graph.size();
+        before = new BitSet[size];
+        after = new BitSet[size];
+
+        // The input side of each instruction is met from its neighbours, the output side is transferred from it
+        var input = direction == Direction.FORWARD ? before : after;
+        var output = direction == Direction.FORWARD ? after : before;
+        for (int i = 0; i < size; i++) {
+            input[i] = getInitial();
+            output[i] = getInitial();
+        }
+
+        var worklist = new ArrayDeque<Integer>();
+        var queued = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            // Instructions in the order the facts flow, so that most are computed after their inputs
+            int instruction = direction == Direction.FORWARD ? i : size - 1 - i;
+            worklist.add(instruction);
+            queued[instruction] = true;
+        }
+
+        while (!worklist.isEmpty()) {
+            int instruction = worklist.poll();
+            queued[instruction] = false;
+
+            input[instruction] = meetInputs(instruction, output);
+            var transferred = transfer(instruction, input[instruction]);
+            if (transferred.equals(output[instruction])) {
+                continue;
+            }
+
+            output[instruction] = transferred;
+            for (int next : getDependents(instruction)) {
+                if (!queued[next]) {
+                    worklist.add(next);
+                    queued[next] = true;
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @return the facts that hold right before the instruction
+     */
+    public BitSet getBefore(int instruction) {
+        return before[instruction];
+    }
+
+    /**
+     * @return the facts that hold right after the instruction
+     */
+    public BitSet getAfter(int instruction) {
+        return after[instruction];
+    }
+
+    private BitSet meetInputs(int instruction, BitSet[] output) {
+        var isBoundary = direction == Direction.FORWARD ? graph.isEntry(instruction) : graph.isExit(instruction);
+        var sources = direction == Direction.FORWARD
+                ? graph.getPredecessors(instruction)
+                : graph.getSuccessors(instruction);
+
+        BitSet met = isBoundary ? (BitSet) getBoundary().clone() : null;
+        for (int source : sources) {
+            if (met == null) {
+                met = (BitSet) output[source].clone();
+            } else if (meet == Meet.UNION) {
+                met.or(output[source]);
+            } else {
+                met.and(output[source]);
+            }
+        }
+
+        // Unreachable, or never reaches an exit
+        return met != null ? met : getInitial();
+    }
+
+    private int[] getDependents(int instruction) {
+        return direction == Direction.FORWARD
+                ? graph.getSuccessors(instruction)
+                : graph.getPredecessors(instruction);
+    }
+}
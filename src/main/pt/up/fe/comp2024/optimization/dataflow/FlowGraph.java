@@ -0,0 +1,127 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.InstructionType;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Node;
+import org.specs.comp.ollir.NodeType;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Successors and predecessors of the instructions of an OLLIR method, by their index in the method.
+ * <p>
+ * The edges come from the CFG of the method, which is built if it was not yet. The begin and end nodes are not
+ * instructions: the first instruction is the entry, and the instructions that go to the end node are the exits.
+ */
+public class FlowGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private final Method method;
+    private final List<Instruction> instructions;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final boolean[] exits;
+
+    private FlowGraph(Method method) {
+        this.method = method;
+        this.instructions = method.getInstructions();
+
+        // The first instruction is only linked to the begin node by the CFG
+        if (!instructions.isEmpty() && instructions.get(0).getPredecessors().isEmpty()) {
+            method.buildCFG();
+        }
+
+        var indexes = new IdentityHashMap<Node, Integer>();
+        for (int i = 0; i < instructions.size(); i++) {
+            indexes.put(instructions.get(i), i);
+        }
+
+        int size = instructions.size();
+        successors = new int[size][];
+        exits = new boolean[size];
+        var predecessorLists = new ArrayList<List<Integer>>();
+        for (int i = 0; i < size; i++) {
+            predecessorLists.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < size; i++) {
+            var instruction = instructions.get(i);
+            var targets = new ArrayList<Integer>();
+            for (var successor : instruction.getSuccessors()) {
+                if (successor.getNodeType() == NodeType.END) {
+                    exits[i] = true;
+                    continue;
+                }
+
+                // The CFG also links a return to the instruction after it, which it never goes to
+                if (instruction.getInstType() == InstructionType.RETURN) {
+                    continue;
+                }
+
+                int target = indexes.get(successor);
+                if (!targets.contains(target)) {
+                    targets.add(target);
+                    predecessorLists.get(target).add(i);
+                }
+            }
+            successors[i] = toArray(targets);
+        }
+
+        predecessors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            predecessors[i] = toArray(predecessorLists.get(i));
+        }
+    }
+
+    public static FlowGraph of(Method method) {
+        return new FlowGraph(method);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public int size() {
+        return instructions.size();
+    }
+
+    public Instruction getInstruction(int index) {
+        return instructions.get(index);
+    }
+
+    /**
+     * @return the indexes of the instructions that can run right after the instruction
+     */
+    public int[] getSuccessors(int index) {
+        return successors[index];
+    }
+
+    /**
+     * @return the indexes of the instructions that can run right before the instruction
+     */
+    public int[] getPredecessors(int index) {
+        return predecessors[index];
+    }
+
+    public boolean isEntry(int index) {
+        return index == 0;
+    }
+
+    /**
+     * @return true if the method can end after the instruction
+     */
+    public boolean isExit(int index) {
+        return exits[index];
+    }
+
+    private static int[] toArray(List<Integer> indexes) {
+        if (indexes.isEmpty()) {
+            return NONE;
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,32 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * Dataflow analysis whose instructions add a set of facts and remove another, e.g. liveness, reaching definitions or
+ * available expressions: the output of an instruction is its gen set together with its input without its kill set.
+ */
+public abstract class GenKillAnalysis extends DataflowAnalysis {
+
+    protected GenKillAnalysis(FlowGraph graph, Direction direction, Meet meet) {
+        super(graph, direction, meet);
+    }
+
+    /**
+     * @return the facts the instruction makes hold
+     */
+    protected abstract BitSet getGen(int instruction);
+
+    /**
+     * @return the facts the instruction stops from holding, unless it also makes them hold
+     */
+    protected abstract BitSet getKill(int instruction);
+
+    @Override
+    protected BitSet transfer(int instruction, BitSet input) {
+        var output = (BitSet) input.clone();
+        output.andNot(getKill(instruction));
+        output.or(getGen(instruction));
+        return output;
+    }
+}
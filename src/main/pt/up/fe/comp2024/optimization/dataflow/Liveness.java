@@ -0,0 +1,39 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * Variables whose value may still be read, before and after each instruction.
+ * <p>
+ * A variable is live after an instruction if some path from it reads the variable before writing it. Nothing is live
+ * after the method ends.
+ */
+public class Liveness extends GenKillAnalysis {
+
+    private final Variables variables;
+
+    public Liveness(FlowGraph graph, Variables variables) {
+        super(graph, Direction.BACKWARD, Meet.UNION);
+        this.variables = variables;
+    }
+
+    @Override
+    protected BitSet getBoundary() {
+        return new BitSet();
+    }
+
+    @Override
+    protected BitSet getInitial() {
+        return new BitSet();
+    }
+
+    @Override
+    protected BitSet getGen(int instruction) {
+        return variables.getUses(instruction);
+    }
+
+    @Override
+    protected BitSet getKill(int instruction) {
+        return variables.getDefs(instruction);
+    }
+}
@@ -0,0 +1,124 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.FieldInstruction;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.VarScope;
+import org.specs.comp.ollir.tree.TreeNode;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locals and parameters of an OLLIR method, numbered for the bitsets of dataflow analyses, with the variables each
+ * instruction reads and writes.
+ * <p>
+ * The variables are numbered in the order of their virtual registers. Storing into an array element reads the array
+ * variable and does not write it. Fields are not variables.
+ */
+public class Variables {
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final BitSet[] uses;
+    private final BitSet[] defs;
+
+    private Variables(FlowGraph graph) {
+        var varTable = graph.getMethod().getVarTable();
+        varTable.forEach((name, descriptor) -> {
+            if (descriptor.getScope() != VarScope.FIELD) {
+                names.add(name);
+            }
+        });
+        names.sort(Comparator.comparingInt((String name) -> varTable.get(name).getVirtualReg())
+                .thenComparing(Comparator.naturalOrder()));
+        for (int i = 0; i < names.size(); i++) {
+            indexes.put(names.get(i), i);
+        }
+
+        uses = new BitSet[graph.size()];
+        defs = new BitSet[graph.size()];
+        for (int i = 0; i < graph.size(); i++) {
+            uses[i] = new BitSet(names.size());
+            defs[i] = new BitSet(names.size());
+
+            var instruction = graph.getInstruction(i);
+            if (instruction instanceof AssignInstruction assign) {
+                addDest(assign, uses[i], defs[i]);
+                addUses(assign.getRhs(), uses[i]);
+            } else {
+                addUses(instruction, uses[i]);
+            }
+        }
+    }
+
+    public static Variables of(FlowGraph graph) {
+        return new Variables(graph);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String getName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * @return the number of the variable, or -1 if it is not a local or parameter of the method
+     */
+    public int getIndex(String name) {
+        return indexes.getOrDefault(name, -1);
+    }
+
+    /**
+     * @return the variables the instruction reads; must not be changed
+     */
+    public BitSet getUses(int instruction) {
+        return uses[instruction];
+    }
+
+    /**
+     * @return the variables the instruction writes; must not be changed
+     */
+    public BitSet getDefs(int instruction) {
+        return defs[instruction];
+    }
+
+    private void addDest(AssignInstruction assign, BitSet uses, BitSet defs) {
+        var dest = assign.getDest();
+        if (dest instanceof ArrayOperand) {
+            addUses(dest, uses);
+            return;
+        }
+
+        if (dest instanceof Operand operand) {
+            var index = indexes.get(operand.getName());
+            if (index != null) {
+                defs.set(index);
+            }
+        }
+    }
+
+    private void addUses(TreeNode node, BitSet uses) {
+        if (node instanceof Operand operand) {
+            var index = indexes.get(operand.getName());
+            if (index != null) {
+                uses.set(index);
+            }
+        }
+
+        for (var child : node.getChildren()) {
+            // The field operand names a field, which may have the name of a variable
+            if (node instanceof FieldInstruction field && child == field.getField()) {
+                continue;
+            }
+            addUses(child, uses);
+        }
+    }
+}
@@ -1,13 +1,31 @@
 package pt.up.fe.comp2024.parser;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.typed.TypedAstBuilder;
+import pt.up.fe.comp2024.utils.Instrumentation;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Map;
 
@@ -34,23 +52,113 @@ public class JmmParserImpl implements JmmParser {
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
 
-        try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
-
+        // Reuses a lexer and a parser, already reset to read the code
+        var pool = ParserPool.get();
+        var pooled = pool.acquire(jmmCode);
 
+        try {
             // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            return parse(pooled.getLexer(), pooled.getParser(), startingRule, config);
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+        } finally {
+            pool.release(pooled);
+        }
+    }
+
+    /**
+     * Same as {@link AntlrParser#parse(Lexer, Parser, String, Map)}, but looks up the rule method directly.
+     * <p>
+     * The library goes through SpecsSystem.invoke, whose method cache is not thread-safe and fails when several
+     * units are parsed concurrently on a cold JVM.
+     */
+    private static JmmParserResult parse(Lexer lex, Parser parser, String ruleName, Map<String, String> config)
+            throws ReflectiveOperationException {
+
+        lex.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lex.addErrorListener(lexerListener);
+
+        var rule = parser.getClass().getMethod(ruleName);
+
+        ParseTree node = null;
+        if (CompilerConfig.isTwoStageParsing(config)) {
+            node = Instrumentation.measure("sll", () -> parseSll(parser, rule));
+        }
+
+        parser.removeErrorListeners();
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        if (node == null) {
+            node = Instrumentation.measure("ll", () -> invokeRule(parser, rule));
+        }
+
+        var reports = new ArrayList<Report>();
+        reports.addAll(lexerListener.getReports());
+        reports.addAll(parserListener.getReports());
+
+        if (reports.stream().anyMatch(r -> r.getType().equals(ReportType.ERROR))) {
+            return new JmmParserResult(null, reports, config);
+        }
+
+        var tree = node;
+        var root = Instrumentation.measure("convert", () -> {
+            JmmNode converted;
+            if (CompilerConfig.isTypedAst(config)) {
+                converted = TypedAstBuilder.build((ParserRuleContext) tree);
+            } else {
+                converted = AntlrToJmmNodeConverter.convert(tree, parser);
+                Kind.shareHierarchies(converted);
+            }
+
+            var ignoreList = AntlrParser.getIgnoreList(parser);
+            if (!ignoreList.isEmpty()) {
+                new JmmNodeCleanup(ignoreList).visit(converted);
+            }
+
+            return converted;
+        });
+
+        return new JmmParserResult(root, reports, config);
+    }
+
+    /**
+     * First stage of the two-stage strategy. SLL prediction is much faster than LL, but may fail on inputs LL accepts,
+     * so it bails out on the first syntax error instead of recovering, and the input is parsed again with LL, which
+     * is also what reports the errors.
+     *
+     * @return the parse tree, or null if SLL could not parse the input
+     */
+    private static ParseTree parseSll(Parser parser, Method rule) {
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        try {
+            return invokeRule(parser, rule);
+        } catch (ParseCancellationException e) {
+            // Rewinds the token stream, the tokens already lexed are kept so lexical errors are not reported twice
+            parser.reset();
+            return null;
+        } finally {
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        }
+    }
+
+    private static ParseTree invokeRule(Parser parser, Method rule) {
+        try {
+            return (ParseTree) rule.invoke(parser);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Could not invoke rule '" + rule.getName() + "'", e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Could not invoke rule '" + rule.getName() + "'", e);
         }
     }
 }
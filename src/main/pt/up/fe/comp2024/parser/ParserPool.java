@@ -0,0 +1,151 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.dfa.DFA;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.utils.Log;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Reuses lexer and parser instances across parses, and manages the prediction DFA they share.
+ * <p>
+ * The DFA of the generated lexer and parser is static, so the predictions learned by one parse speed up every later
+ * one, but it also grows without limit in a long-running process. After each parse the pool checks its size and, if
+ * it has more states than the limit given with '-a' or the heap is almost full, clears it. Clearing waits for no
+ * parse to be in flight, so it is skipped (and retried after the next parse) while other threads are parsing.
+ */
+public class ParserPool {
+
+    private static final ParserPool INSTANCE = new ParserPool();
+
+    private static final int DEFAULT_MAX_DFA_STATES = 100_000;
+    private static final double MAX_HEAP_USAGE = 0.9;
+
+    private final ConcurrentLinkedQueue<PooledParser> idle = new ConcurrentLinkedQueue<>();
+    private final ReentrantReadWriteLock dfaLock = new ReentrantReadWriteLock();
+    private volatile int maxDfaStates = DEFAULT_MAX_DFA_STATES;
+
+    public static ParserPool get() {
+        return INSTANCE;
+    }
+
+    public void setMaxDfaStates(int maxDfaStates) {
+        this.maxDfaStates = maxDfaStates;
+    }
+
+    /**
+     * Parses the given sources, so that the DFA already has their predictions when the first real input arrives.
+     */
+    public void prewarm(Collection<String> sources, Map<String, String> config) {
+        var parser = new JmmParserImpl();
+        for (var source : sources) {
+            parser.parse(source, config);
+        }
+
+        Log.info("Parser DFA prewarmed from " + sources.size() + " files, " + getDfaStates() + " states");
+    }
+
+    /**
+     * @return a lexer and parser ready to parse the given code, to be given back with {@link #release(PooledParser)}
+     */
+    PooledParser acquire(String code) {
+        dfaLock.readLock().lock();
+
+        var pooled = idle.poll();
+        if (pooled == null) {
+            pooled = new PooledParser();
+        }
+
+        pooled.reset(code);
+        return pooled;
+    }
+
+    void release(PooledParser pooled) {
+        // Do not keep the tokens of the last input alive while idle
+        pooled.reset("");
+        idle.offer(pooled);
+        dfaLock.readLock().unlock();
+
+        // Under memory pressure a DFA well below the limit is still worth dropping, but not one that is nearly empty
+        int states = getDfaStates();
+        if (states > maxDfaStates || (states > maxDfaStates / 10 && isHeapAlmostFull())) {
+            clearDfa();
+        }
+    }
+
+    /**
+     * @return number of states in the prediction DFA of the lexer and the parser
+     */
+    public int getDfaStates() {
+        var pooled = idle.peek();
+        if (pooled == null) {
+            return 0;
+        }
+
+        return countStates(pooled.lexer.getInterpreter().decisionToDFA)
+                + countStates(pooled.parser.getInterpreter().decisionToDFA);
+    }
+
+    private void clearDfa() {
+        if (!dfaLock.writeLock().tryLock()) {
+            return;
+        }
+
+        try {
+            var pooled = idle.peek();
+            if (pooled == null) {
+                return;
+            }
+
+            int states = getDfaStates();
+            pooled.lexer.getInterpreter().clearDFA();
+            pooled.parser.getInterpreter().clearDFA();
+            Log.info("Cleared parser DFA with " + states + " states");
+        } finally {
+            dfaLock.writeLock().unlock();
+        }
+    }
+
+    private static int countStates(DFA[] dfas) {
+        int states = 0;
+        for (var dfa : dfas) {
+            states += dfa.states.size();
+        }
+        return states;
+    }
+
+    private static boolean isHeapAlmostFull() {
+        var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getMax() > 0 && heap.getUsed() > heap.getMax() * MAX_HEAP_USAGE;
+    }
+
+    /**
+     * A lexer and a parser over its tokens, reset to a new input before each parse.
+     */
+    static class PooledParser {
+
+        private final JavammLexer lexer = new JavammLexer(new ANTLRInputStream(""));
+        private final JavammParser parser = new JavammParser(new CommonTokenStream(lexer));
+
+        private void reset(String code) {
+            lexer.setInputStream(new ANTLRInputStream(code));
+            // The token stream is not reused, BufferedTokenStream.setTokenSource keeps the EOF flag of the last input
+            parser.setInputStream(new CommonTokenStream(lexer));
+        }
+
+        JavammLexer getLexer() {
+            return lexer;
+        }
+
+        JavammParser getParser() {
+            return parser;
+        }
+    }
+}
@@ -3,23 +3,50 @@ package pt.up.fe.comp2024.symboltable;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class JmmSymbolTable implements SymbolTable {
 
+    /**
+     * Where a name was declared, from the innermost scope.
+     */
+    public enum SymbolKind {
+        LOCAL, PARAMETER, FIELD, IMPORT
+    }
+
+    /**
+     * A name resolved in the scope of a method. Imports have the type 'imported'.
+     */
+    public record ResolvedSymbol(Symbol symbol, SymbolKind kind) {
+
+        public Type getType() {
+            return symbol.getType();
+        }
+    }
+
     private final String className;
     private final List<String> methods;
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
     private final List<List<String>> imports;
+    private final List<String> qualifiedImports;
+    private final Map<String, List<String>> importsBySimpleName;
     private final String superName;
     private final List<Symbol> fields;
+    private final Map<JmmNode, JmmNode> enclosingMethods;
+    private final Map<String, Map<String, ResolvedSymbol>> methodScopes;
+    private final Map<String, ResolvedSymbol> classScope;
+    private final Map<JmmNode, Type> exprTypes = new IdentityHashMap<>();
 
     public JmmSymbolTable(String className,
                           List<String> methods,
@@ -28,21 +55,47 @@ public class JmmSymbolTable implements SymbolTable {
                           Map<String, List<Symbol>> locals,
                           List<List<String>> imports,
                           String superName,
-                          List<Symbol> fields) {
+                          List<Symbol> fields,
+                          Map<JmmNode, JmmNode> enclosingMethods,
+                          Map<String, Map<String, ResolvedSymbol>> methodScopes,
+                          Map<String, ResolvedSymbol> classScope) {
         this.className = className;
         this.methods = methods;
         this.returnTypes = returnTypes;
         this.params = params;
         this.locals = locals;
         this.imports = imports;
+        this.qualifiedImports = imports.stream().map(list -> String.join(".", list)).toList();
+        this.importsBySimpleName = new HashMap<>();
+        for (int i = 0; i < imports.size(); i++) {
+            var imp = imports.get(i);
+            importsBySimpleName.computeIfAbsent(imp.get(imp.size() - 1), name -> new ArrayList<>())
+                    .add(qualifiedImports.get(i));
+        }
         this.superName = superName;
         this.fields = fields;
+        this.enclosingMethods = enclosingMethods;
+        this.methodScopes = methodScopes;
+        this.classScope = classScope;
     }
 
     @Override
     public List<String> getImports() {
+        return qualifiedImports;
+    }
+
+    /**
+     * @return true if a class with the given simple name is imported
+     */
+    public boolean isImported(String simpleName) {
+        return importsBySimpleName.containsKey(simpleName);
+    }
 
-        return imports.stream().map(list -> String.join(".", list)).toList();
+    /**
+     * @return the whole names of the imports whose last part is the given name, in the order they are declared
+     */
+    public List<String> getImports(String simpleName) {
+        return importsBySimpleName.getOrDefault(simpleName, Collections.emptyList());
     }
 
     public List<List<String>> getImportsList() {
@@ -86,4 +139,44 @@ public class JmmSymbolTable implements SymbolTable {
         return Collections.unmodifiableList(locals.getOrDefault(methodSignature, Collections.emptyList()));
     }
 
+    /**
+     * Resolves a name used inside a method: locals hide parameters, which hide fields, which hide imports (by the last
+     * part of their name). Among declarations of the same kind, the first one is used.
+     *
+     * @return the declaration of the name, or null if it is not declared
+     */
+    public ResolvedSymbol resolve(String methodSignature, String name) {
+        var methodScope = methodScopes.get(methodSignature);
+        if (methodScope != null) {
+            var symbol = methodScope.get(name);
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+
+        return classScope.get(name);
+    }
+
+    /**
+     * @return the method declaration the node was in when the table was built, or null if the node was created
+     * afterwards or is not inside a method
+     */
+    public JmmNode getEnclosingMethod(JmmNode node) {
+        return enclosingMethods.get(node);
+    }
+
+    /**
+     * @return the type given to the expression by {@link TypeUtils#attributeTypes(JmmNode, JmmSymbolTable)}, or null
+     * if it has none
+     */
+    public Type getExprType(JmmNode expr) {
+        return exprTypes.get(expr);
+    }
+
+    /**
+     * Only called while types are attributed, before the table is shared with the passes.
+     */
+    public void putExprType(JmmNode expr, Type type) {
+        exprTypes.put(expr, type);
+    }
 }
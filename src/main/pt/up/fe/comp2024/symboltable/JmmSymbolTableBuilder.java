@@ -5,6 +5,8 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable.ResolvedSymbol;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable.SymbolKind;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.*;
@@ -34,8 +36,79 @@ public class JmmSymbolTableBuilder {
         }
 
         var fields = buildFields(classDecl);
+        var enclosingMethods = buildEnclosingMethods(classDecl);
+        var methodScopes = buildMethodScopes(params, locals);
+        var classScope = buildClassScope(fields, imports);
 
-        return new JmmSymbolTable(className, methods, returnTypes, params, locals, imports, superName, fields);
+        return new JmmSymbolTable(className, methods, returnTypes, params, locals, imports, superName, fields,
+                enclosingMethods, methodScopes, classScope);
+    }
+
+    /**
+     * Indexes the locals and parameters of each method by name, locals first so that they hide the parameters.
+     */
+    private static Map<String, Map<String, ResolvedSymbol>> buildMethodScopes(Map<String, List<Symbol>> params,
+                                                                             Map<String, List<Symbol>> locals) {
+        Map<String, Map<String, ResolvedSymbol>> scopes = new HashMap<>();
+
+        for (var method : locals.entrySet()) {
+            var scope = scopes.computeIfAbsent(method.getKey(), name -> new HashMap<>());
+            for (Symbol local : method.getValue()) {
+                scope.putIfAbsent(local.getName(), new ResolvedSymbol(local, SymbolKind.LOCAL));
+            }
+        }
+
+        for (var method : params.entrySet()) {
+            var scope = scopes.computeIfAbsent(method.getKey(), name -> new HashMap<>());
+            for (Symbol param : method.getValue()) {
+                scope.putIfAbsent(param.getName(), new ResolvedSymbol(param, SymbolKind.PARAMETER));
+            }
+        }
+
+        return scopes;
+    }
+
+    /**
+     * Indexes the fields by name and the imports by the last part of their name, fields first so that they hide the
+     * imports.
+     */
+    private static Map<String, ResolvedSymbol> buildClassScope(List<Symbol> fields, List<List<String>> imports) {
+        Map<String, ResolvedSymbol> scope = new HashMap<>();
+
+        for (Symbol field : fields) {
+            scope.putIfAbsent(field.getName(), new ResolvedSymbol(field, SymbolKind.FIELD));
+        }
+
+        for (List<String> imp : imports) {
+            var name = imp.get(imp.size() - 1);
+            var symbol = new Symbol(new Type("imported", false), name);
+            scope.putIfAbsent(name, new ResolvedSymbol(symbol, SymbolKind.IMPORT));
+        }
+
+        return scope;
+    }
+
+    /**
+     * Maps every node inside a method to its declaration, so that the passes find the method of a node without
+     * walking up its parents.
+     */
+    private static Map<JmmNode, JmmNode> buildEnclosingMethods(JmmNode classDecl) {
+        Map<JmmNode, JmmNode> map = new IdentityHashMap<>();
+
+        for (JmmNode method : classDecl.getChildren()) {
+            if (Kind.check(method, METHOD_DECL, MAIN_METHOD_DECL)) {
+                addEnclosingMethod(map, method, method);
+            }
+        }
+
+        return map;
+    }
+
+    private static void addEnclosingMethod(Map<JmmNode, JmmNode> map, JmmNode node, JmmNode method) {
+        for (JmmNode child : node.getChildren()) {
+            map.put(child, method);
+            addEnclosingMethod(map, child, method);
+        }
     }
 
     private static List<Symbol> buildFields(JmmNode classDecl) {
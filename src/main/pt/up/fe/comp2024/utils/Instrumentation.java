@@ -0,0 +1,311 @@
+package pt.up.fe.comp2024.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of the steps of a compilation.
+ * <p>
+ * A recorder is bound to the thread that compiles a unit, so the stages can measure their steps with
+ * {@link #measure(String, Supplier)} without passing it around. When no recorder is bound (e.g. in the tests) the
+ * steps just run. Nested steps are named after their parents, e.g. "analysis/Types".
+ * <p>
+ * The CPU time and allocated bytes of a step are those of the thread that runs it, plus those of the tasks it forks
+ * to other threads through {@link #forked(Callable)}, e.g. the methods analyzed in parallel.
+ * <p>
+ * Work done in many short calls interleaved with other work, e.g. the visits of each pass in a fused traversal, is
+ * added up with {@link #accumulate(String)} instead.
+ */
+public class Instrumentation implements AutoCloseable {
+
+    private static final ThreadLocal<Instrumentation> CURRENT = new ThreadLocal<>();
+    // Step that forked the task the thread is running, if any, which takes the accumulated work of the task
+    private static final ThreadLocal<OpenStep> FORKED = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Instrumentation previous;
+    private final OpenStep previousForked;
+    private final List<Step> steps = new ArrayList<>();
+    private final Deque<OpenStep> open = new ArrayDeque<>();
+
+    private Instrumentation(Instrumentation previous) {
+        this.previous = previous;
+        this.previousForked = FORKED.get();
+    }
+
+    /**
+     * Binds a new recorder to the current thread, until it is closed.
+     */
+    public static Instrumentation begin() {
+        var instrumentation = new Instrumentation(CURRENT.get());
+        CURRENT.set(instrumentation);
+        FORKED.remove();
+        return instrumentation;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+        setForked(previousForked);
+    }
+
+    public static <T> T measure(String name, Supplier<T> body) {
+        var instrumentation = CURRENT.get();
+        if (instrumentation == null) {
+            return body.get();
+        }
+
+        return instrumentation.record(name, body);
+    }
+
+    public static void measure(String name, Runnable body) {
+        measure(name, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wraps a task forked from the innermost open step, so that the CPU time and the bytes allocated by the thread
+     * that runs it are counted in that step and those enclosing it. A task that runs on the thread that forked it is
+     * already counted.
+     */
+    public static <T> Callable<T> forked(Callable<T> task) {
+        var instrumentation = CURRENT.get();
+        if (instrumentation == null || instrumentation.open.isEmpty()) {
+            return task;
+        }
+
+        var step = instrumentation.open.peek();
+        var owner = Thread.currentThread();
+        return () -> {
+            var previousForked = FORKED.get();
+            FORKED.set(step);
+            try {
+                if (Thread.currentThread() == owner) {
+                    return task.call();
+                }
+
+                long cpu = getCpuNanos();
+                long allocated = getAllocatedBytes();
+                try {
+                    return task.call();
+                } finally {
+                    step.addForked(cpu < 0 ? 0 : getCpuNanos() - cpu,
+                            allocated < 0 ? 0 : getAllocatedBytes() - allocated);
+                }
+            } finally {
+                setForked(previousForked);
+            }
+        };
+    }
+
+    /**
+     * Adds up the work of many short calls into a step nested in the innermost open step, listed after it once it
+     * finishes, e.g. "analysis/passes/Types". In a task wrapped by {@link #forked(Callable)}, the step that forked the
+     * task is used. The accumulators of the same name in a step add to the same nested step, from any thread.
+     * <p>
+     * Only the wall time and the allocated bytes of the calls are measured, since reading the CPU time of a thread
+     * takes longer than many of the calls. In tasks forked to other threads, the wall time of the calls on each thread
+     * is added, so it can be longer than the enclosing step.
+     *
+     * @return an accumulator to be used by the calling thread only, or null if no step is open
+     */
+    public static Accumulator accumulate(String name) {
+        var step = FORKED.get();
+        if (step == null) {
+            var instrumentation = CURRENT.get();
+            if (instrumentation == null || instrumentation.open.isEmpty()) {
+                return null;
+            }
+            step = instrumentation.open.peek();
+        }
+
+        return new Accumulator(step.getAccumulated(name));
+    }
+
+    private static void setForked(OpenStep step) {
+        if (step == null) {
+            FORKED.remove();
+        } else {
+            FORKED.set(step);
+        }
+    }
+
+    private <T> T record(String name, Supplier<T> body) {
+        var step = new OpenStep(open.isEmpty() ? name : open.peek().path + "/" + name);
+
+        // Reserve the slot now, so that steps are listed before their nested steps
+        int index = steps.size();
+        steps.add(null);
+        open.push(step);
+
+        long wall = System.nanoTime();
+        long cpu = getCpuNanos();
+        long allocated = getAllocatedBytes();
+        try {
+            return body.get();
+        } finally {
+            open.pop();
+
+            // The forked tasks have been joined by now
+            long forkedCpu = step.forkedCpuNanos.get();
+            long forkedAllocated = step.forkedAllocatedBytes.get();
+            steps.set(index, new Step(step.path,
+                    System.nanoTime() - wall,
+                    cpu < 0 ? -1 : getCpuNanos() - cpu + forkedCpu,
+                    allocated < 0 ? -1 : getAllocatedBytes() - allocated + forkedAllocated));
+
+            for (var accumulated : step.getAccumulated()) {
+                steps.add(new Step(step.path + "/" + accumulated.name,
+                        accumulated.wallNanos.get(),
+                        -1,
+                        allocated < 0 ? -1 : accumulated.allocatedBytes.get()));
+            }
+
+            if (!open.isEmpty()) {
+                open.peek().addForked(forkedCpu, forkedAllocated);
+            }
+        }
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    private static long getCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long getAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+
+        return -1;
+    }
+
+    /**
+     * A step that has not finished yet, with the work done for it on other threads so far.
+     */
+    private static class OpenStep {
+
+        private final String path;
+        private final AtomicLong forkedCpuNanos = new AtomicLong();
+        private final AtomicLong forkedAllocatedBytes = new AtomicLong();
+        private final Map<String, AccumulatedStep> accumulated = new LinkedHashMap<>();
+
+        OpenStep(String path) {
+            this.path = path;
+        }
+
+        void addForked(long cpuNanos, long allocatedBytes) {
+            forkedCpuNanos.addAndGet(cpuNanos);
+            forkedAllocatedBytes.addAndGet(allocatedBytes);
+        }
+
+        synchronized AccumulatedStep getAccumulated(String name) {
+            return accumulated.computeIfAbsent(name, AccumulatedStep::new);
+        }
+
+        /**
+         * @return the accumulated steps, in the order they were first accumulated
+         */
+        synchronized List<AccumulatedStep> getAccumulated() {
+            return new ArrayList<>(accumulated.values());
+        }
+    }
+
+    private static class AccumulatedStep {
+
+        private final String name;
+        private final AtomicLong wallNanos = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+
+        AccumulatedStep(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Measures the calls between {@link #start()} and {@link #stop()}, and adds them to its step when closed, so that
+     * the threads only share the totals.
+     */
+    public static class Accumulator implements AutoCloseable {
+
+        private final AccumulatedStep step;
+        private long wallNanos;
+        private long allocatedBytes;
+        private long wallStart;
+        private long allocatedStart;
+
+        private Accumulator(AccumulatedStep step) {
+            this.step = step;
+        }
+
+        public void start() {
+            wallStart = System.nanoTime();
+            allocatedStart = getAllocatedBytes();
+        }
+
+        public void stop() {
+            wallNanos += System.nanoTime() - wallStart;
+            if (allocatedStart >= 0) {
+                allocatedBytes += getAllocatedBytes() - allocatedStart;
+            }
+        }
+
+        @Override
+        public void close() {
+            step.wallNanos.addAndGet(wallNanos);
+            step.allocatedBytes.addAndGet(allocatedBytes);
+            wallNanos = 0;
+            allocatedBytes = 0;
+        }
+    }
+
+    /**
+     * A measured step. CPU time and allocated bytes are -1 when the JVM cannot measure them, and the CPU time is -1 for
+     * the steps added up by {@link #accumulate(String)}.
+     */
+    public record Step(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+
+        /**
+         * @return true for the stages of the pipeline, as opposed to the steps inside them
+         */
+        public boolean isStage() {
+            return name.indexOf('/') < 0;
+        }
+
+        public JsonObject toJson() {
+            var json = new JsonObject();
+            json.addProperty("name", name);
+            json.addProperty("wallMs", wallNanos / 1e6);
+            json.addProperty("cpuMs", cpuNanos < 0 ? -1 : cpuNanos / 1e6);
+            json.addProperty("allocatedBytes", allocatedBytes);
+            return json;
+        }
+    }
+
+    public static JsonArray toJson(List<Step> steps) {
+        var json = new JsonArray();
+        steps.forEach(step -> json.add(step.toJson()));
+        return json;
+    }
+}
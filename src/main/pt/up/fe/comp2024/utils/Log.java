@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Leveled diagnostic channel of the compiler, shared by every stage.
+ * <p>
+ * Messages below the current level are dropped before they are built: the {@link Supplier} variants only format
+ * the message if it is going to be written, so disabled debug output in hot paths costs a level check. Messages go
+ * to stderr, or to a file given with '-g', so that stdout is left for the output of the compiler.
+ */
+public class Log {
+
+    public enum Level {
+        OFF, ERROR, WARN, INFO, DEBUG, TRACE;
+
+        public static Level fromString(String level) {
+            try {
+                return valueOf(level.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown log level '" + level + "', expected one of off, error, warn, "
+                        + "info, debug or trace");
+            }
+        }
+    }
+
+    private static volatile Level level = Level.INFO;
+    private static volatile PrintStream sink = System.err;
+
+    /**
+     * Sets the level and destination of the messages. A null file keeps them on stderr.
+     */
+    public static void configure(Level newLevel, File file) {
+        if (file != null) {
+            try {
+                sink = new PrintStream(new FileOutputStream(file, true), true, StandardCharsets.UTF_8);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException("Could not open log file '" + file + "'", e);
+            }
+        }
+
+        level = newLevel;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.ordinal() <= level.ordinal();
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            write(Level.DEBUG, message.get());
+        }
+    }
+
+    public static void trace(Supplier<String> message) {
+        if (isEnabled(Level.TRACE)) {
+            write(Level.TRACE, message.get());
+        }
+    }
+
+    private static void log(Level messageLevel, String message) {
+        if (isEnabled(messageLevel)) {
+            write(messageLevel, message);
+        }
+    }
+
+    private static void write(Level messageLevel, String message) {
+        // A single println per message, so that lines of concurrent compilations do not interleave
+        sink.println(LocalDateTime.now() + " " + messageLevel + " [" + Thread.currentThread().getName() + "] "
+                + message);
+    }
+}
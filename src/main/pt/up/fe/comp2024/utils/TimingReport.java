@@ -0,0 +1,84 @@
+package pt.up.fe.comp2024.utils;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON report of the steps measured for each compiled unit, written with '-t'.
+ * <p>
+ * Besides the steps of every unit, it has the totals of each step over all units, which is where the hot passes of a
+ * batch show up.
+ */
+public class TimingReport {
+
+    private final List<UnitTimings> units = new ArrayList<>();
+
+    public synchronized void add(String input, List<Instrumentation.Step> steps) {
+        units.add(new UnitTimings(input, steps));
+    }
+
+    public synchronized JsonObject toJson() {
+        var totals = new LinkedHashMap<String, long[]>();
+        var unitsJson = new JsonArray();
+
+        // Sorted by input, so that the report does not depend on the order in which workers finish
+        var sorted = new ArrayList<>(units);
+        sorted.sort((a, b) -> a.input().compareTo(b.input()));
+
+        for (var unit : sorted) {
+            var unitJson = new JsonObject();
+            unitJson.addProperty("input", unit.input());
+            unitJson.add("steps", Instrumentation.toJson(unit.steps()));
+            unitsJson.add(unitJson);
+
+            for (var step : unit.steps()) {
+                var total = totals.computeIfAbsent(step.name(), name -> new long[4]);
+                total[0]++;
+                total[1] += step.wallNanos();
+                total[2] += Math.max(step.cpuNanos(), 0);
+                total[3] += Math.max(step.allocatedBytes(), 0);
+            }
+        }
+
+        var totalsJson = new JsonArray();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            var total = entry.getValue();
+            var totalJson = new JsonObject();
+            totalJson.addProperty("name", entry.getKey());
+            totalJson.addProperty("count", total[0]);
+            totalJson.addProperty("wallMs", total[1] / 1e6);
+            totalJson.addProperty("cpuMs", total[2] / 1e6);
+            totalJson.addProperty("allocatedBytes", total[3]);
+            totalsJson.add(totalJson);
+        }
+
+        var json = new JsonObject();
+        json.add("units", unitsJson);
+        json.add("totals", totalsJson);
+        return json;
+    }
+
+    /**
+     * Writes the report to the given file, or to stderr if there is none.
+     */
+    public void write(String destination) {
+        var text = new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+
+        if (destination == null) {
+            System.err.println(text);
+        } else {
+            SpecsIo.write(new File(destination), text);
+        }
+    }
+
+    private record UnitTimings(String input, List<Instrumentation.Step> steps) {
+    }
+}
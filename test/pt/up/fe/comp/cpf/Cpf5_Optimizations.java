@@ -195,4 +195,32 @@ public class Cpf5_Optimizations {
     }
 
 
+    @Test
+    public void section4_ConstFold_Identities() {
+
+        String filename = "const_fold/FoldIdentities.jmm";
+
+        JasminResult optimized = getJasminResultOpt(filename);
+
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "plusZero"), "iload_1\\s+ireturn");
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "timesOne"), "iload_1\\s+ireturn");
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "timesZero"), "iconst_0\\s+ireturn");
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "andFalse"), "iconst_0\\s+ireturn");
+    }
+
+
+    @Test
+    public void section4_ConstFold_KeepsImpureOperands() {
+
+        String filename = "const_fold/FoldImpure.jmm";
+
+        JasminResult optimized = getJasminResultOpt(filename);
+
+        // The call and the division, which may throw, are still evaluated
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "callTimesZero"), "invokevirtual\\s+FoldImpure/call");
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "divisionTimesZero"), "idiv");
+        CpUtils.matches(CpUtils.getJasminMethod(optimized, "callAndFalse"), "invokevirtual\\s+FoldImpure/test");
+    }
+
+
 }
@@ -0,0 +1,166 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String program(int value) {
+        return """
+                class Foo {
+                    public int value() {
+                        return %d;
+                    }
+                }
+                """.formatted(value);
+    }
+
+    private File source(String path, int value) {
+        var file = new File(folder.getRoot(), path);
+        SpecsIo.write(file, program(value));
+        return file;
+    }
+
+    private File list(File... inputs) {
+        var list = new File(folder.getRoot(), "inputs.txt");
+        var lines = new StringBuilder();
+        for (var input : inputs) {
+            lines.append(input.getPath()).append("\n");
+        }
+        SpecsIo.write(list, lines.toString());
+        return list;
+    }
+
+    private static BatchCompiler.BatchSummary compile(Map<String, String> config) {
+        var summary = new BatchCompiler(config).compileAll(BatchCompiler.collectInputs(config));
+        assertEquals(summary.format(), List.of(), summary.getFailures());
+        return summary;
+    }
+
+    @Test
+    public void listedFilesWithTheSameNameKeepTheirDirectories() throws Exception {
+        var first = source("src/a/Foo.jmm", 1);
+        var second = source("src/b/Foo.jmm", 2);
+        var out = folder.newFolder("out");
+
+        var config = CompilerConfig.getDefault();
+        config.put("inputList", list(first, second).getPath());
+        config.put("outputDir", out.getPath());
+        config.put("jobs", "2");
+
+        assertEquals(2, compile(config).getCompiled());
+        assertTrue(SpecsIo.read(new File(out, "a/Foo.j")).contains("iconst_1"));
+        assertTrue(SpecsIo.read(new File(out, "b/Foo.j")).contains("iconst_2"));
+    }
+
+    @Test
+    public void listedFilesOutsideTheInputDirectoryStayInTheOutputDirectory() throws Exception {
+        source("src/dir/Foo.jmm", 1);
+        var outside = source("other/Foo.jmm", 2);
+        var out = folder.newFolder("out");
+
+        var config = CompilerConfig.getDefault();
+        config.put("inputFile", new File(folder.getRoot(), "src/dir").getPath());
+        config.put("inputList", list(outside).getPath());
+        config.put("outputDir", out.getPath());
+
+        assertEquals(2, compile(config).getCompiled());
+        assertTrue(new File(out, "src/dir/Foo.j").isFile());
+        assertTrue(new File(out, "other/Foo.j").isFile());
+    }
+
+    @Test
+    public void inputDirectoryLayoutIsKept() throws Exception {
+        source("src/Foo.jmm", 1);
+        source("src/nested/Foo.jmm", 2);
+        var out = folder.newFolder("out");
+
+        var config = CompilerConfig.getDefault();
+        config.put("inputFile", new File(folder.getRoot(), "src").getPath());
+        config.put("outputDir", out.getPath());
+
+        assertEquals(2, compile(config).getCompiled());
+        assertTrue(new File(out, "Foo.j").isFile());
+        assertTrue(new File(out, "nested/Foo.j").isFile());
+    }
+
+    @Test
+    public void outputGoesNextToTheInputWithoutOutputDirectory() {
+        var input = source("src/Foo.jmm", 1);
+
+        var config = CompilerConfig.getDefault();
+        config.put("inputList", list(input).getPath());
+
+        compile(config);
+        assertTrue(new File(input.getParentFile(), "Foo.j").isFile());
+    }
+
+    @Test
+    public void inputFileAlsoInTheListIsCompiledOnce() {
+        var input = source("src/Foo.jmm", 1);
+
+        var config = CompilerConfig.getDefault();
+        config.put("inputFile", new File(input.getParentFile(), "../src/./Foo.jmm").getPath());
+        config.put("inputList", list(input).getPath());
+
+        assertEquals(List.of(input.getAbsoluteFile()), BatchCompiler.collectInputs(config));
+    }
+
+    private static final File FIXTURES = new File("test/pt/up/fe/comp/cpf");
+
+    private Map<String, String> compileFixtures(Map<String, String> options, int jobs) throws Exception {
+        var out = folder.newFolder();
+
+        var config = CompilerConfig.getDefault();
+        config.putAll(options);
+        config.put("inputFile", FIXTURES.getPath());
+        config.put("outputDir", out.getPath());
+        config.put("jobs", String.valueOf(jobs));
+
+        var summary = new BatchCompiler(config).compileAll(BatchCompiler.collectInputs(config));
+
+        var outputs = new TreeMap<String, String>();
+        outputs.put("failures", summary.getFailures().toString());
+        for (var output : SpecsIo.getFilesRecursive(out)) {
+            outputs.put(out.toPath().relativize(output.toPath()).toString(), SpecsIo.read(output));
+        }
+        return outputs;
+    }
+
+    @Test
+    public void parallelRunWritesTheSameOutputsAsASequentialOne() throws Exception {
+        for (var options : List.of(Map.<String, String>of(), Map.of("optimize", "true", "registerAllocation", "0"))) {
+            var sequential = compileFixtures(options, 1);
+            var parallel = compileFixtures(options, 8);
+
+            assertTrue(sequential.size() > 1);
+            assertEquals(options.toString(), sequential, parallel);
+        }
+    }
+
+    @Test
+    public void typedAstWritesTheSameOutputsAsTheGenericOne() throws Exception {
+        for (var options : List.of(Map.<String, String>of(), Map.of("optimize", "true", "registerAllocation", "0"))) {
+            var generic = compileFixtures(options, 1);
+            var typedOptions = new HashMap<>(options);
+            typedOptions.put("ast", "typed");
+            var typed = compileFixtures(typedOptions, 1);
+
+            assertEquals(options.toString(), generic, typed);
+        }
+    }
+}
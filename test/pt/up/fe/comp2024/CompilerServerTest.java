@@ -0,0 +1,120 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompilerServerTest {
+
+    private static final String VALID = """
+            class Valid {
+                public int answer() {
+                    return 42;
+                }
+            }
+            """;
+
+    private static final String INVALID = """
+            class Invalid {
+                public int answer() {
+                    return true + 1;
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File source(String name, String code) {
+        var file = new File(folder.getRoot(), name);
+        SpecsIo.write(file, code);
+        return file;
+    }
+
+    private static CompilerServer server(String... args) {
+        return new CompilerServer(CompilerConfig.parseArgs(args));
+    }
+
+    private static JsonObject handle(CompilerServer server, int id, String request) {
+        var response = server.handle(id, request);
+        assertFalse(response, response.contains("\n"));
+        return JsonParser.parseString(response).getAsJsonObject();
+    }
+
+    @Test
+    public void successfulUnitGivesItsOutputAndStages() throws Exception {
+        var input = source("Valid.jmm", VALID);
+        var out = folder.newFolder("out");
+
+        var response = handle(server("-s"), 3, "-i=" + input.getPath() + " -d=" + out.getPath());
+
+        assertEquals(3, response.get("id").getAsInt());
+        assertTrue(response.toString(), response.get("success").getAsBoolean());
+        assertEquals(new File(out, "Valid.j").getPath(), response.get("output").getAsString());
+        assertTrue(new File(out, "Valid.j").isFile());
+        assertEquals(0, response.getAsJsonArray("reports").size());
+        assertTrue(response.getAsJsonObject("stagesMs").has("jasmin"));
+        assertTrue(response.has("totalMs"));
+        assertFalse(response.has("steps"));
+    }
+
+    @Test
+    public void failedUnitGivesItsReports() {
+        var input = source("Invalid.jmm", INVALID);
+
+        var response = handle(server("-s"), 0, "-i=" + input.getPath());
+
+        assertFalse(response.get("success").getAsBoolean());
+        assertFalse(response.has("output"));
+        assertTrue(response.toString(), response.getAsJsonArray("reports").toString().contains("ERROR"));
+    }
+
+    @Test
+    public void invalidRequestGivesAnError() {
+        var response = handle(server("-s"), 0, "-i=Missing.jmm");
+
+        assertFalse(response.get("success").getAsBoolean());
+        assertTrue(response.toString(), response.get("error").getAsString().contains("Missing.jmm"));
+
+        var nested = handle(server("-s"), 1, "-s -i=" + source("Valid.jmm", VALID).getPath());
+        assertFalse(nested.get("success").getAsBoolean());
+    }
+
+    @Test
+    public void batchRequestGivesTheSummary() throws Exception {
+        var list = source("inputs.txt", source("Valid.jmm", VALID).getPath() + "\n"
+                + source("Invalid.jmm", INVALID).getPath() + "\n");
+        var out = folder.newFolder("out");
+
+        var response = handle(server("-s", "-j=2"), 0, "-f=" + list.getPath() + " -d=" + out.getPath());
+
+        assertFalse(response.get("success").getAsBoolean());
+        var summary = response.get("summary").getAsString();
+        assertTrue(summary, summary.contains("Compiled 1 of 2 files (1 failed)"));
+        assertTrue(summary, summary.contains("Invalid.jmm"));
+        assertTrue(new File(out, "Valid.j").isFile());
+    }
+
+    @Test
+    public void serverOptionsApplyToEachRequest() throws Exception {
+        var input = source("Valid.jmm", VALID);
+        var server = server("-s", "-c=" + folder.newFolder("cache").getPath(), "-t");
+
+        handle(server, 0, "-i=" + input.getPath());
+        var second = handle(server, 1, "-i=" + input.getPath());
+
+        // Cached with the '-c' of the server, and timed with its '-t'
+        assertEquals(Set.of("cache"), second.getAsJsonObject("stagesMs").keySet());
+        assertTrue(second.has("steps"));
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.passes.InvalidParameters;
+import pt.up.fe.comp2024.analysis.passes.Types;
+import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisSchedulerTest {
+
+    // 'b' is undeclared, so the sum with a boolean would also be reported by Types if it ran
+    private static final String UNDECLARED = """
+            class Undeclared {
+                public int foo() {
+                    int a;
+                    a = b + true;
+                    return a;
+                }
+            }
+            """;
+
+    private static List<Report> analyse(String code, String analysis) {
+        var config = CompilerConfig.getDefault();
+        config.put("analysis", analysis);
+        return TestUtils.analyse(code, config).getReports();
+    }
+
+    private static List<String> skipped(List<Report> reports) {
+        return reports.stream()
+                .filter(report -> report.getType() == ReportType.LOG)
+                .map(Report::getMessage)
+                .filter(message -> message.startsWith("Skipped analysis pass"))
+                .toList();
+    }
+
+    @Test
+    public void dependentPassesAreSkippedAfterUndeclaredVariable() {
+        for (var analysis : List.of("fused", "parallel")) {
+            var reports = analyse(UNDECLARED, analysis);
+
+            var errors = reports.stream().filter(report -> report.getType() == ReportType.ERROR).toList();
+            assertEquals(analysis + ": " + errors, 1, errors.size());
+            assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().contains("b"));
+
+            var skipped = skipped(reports);
+            assertEquals(analysis + ": " + skipped, 2, skipped.size());
+            assertTrue(skipped.stream().anyMatch(message -> message.contains(Types.class.getName())));
+            assertTrue(skipped.stream().anyMatch(message -> message.contains(InvalidParameters.class.getName())));
+        }
+    }
+
+    @Test
+    public void dependentPassesRunWhenTheDependencySucceeds() {
+        var reports = analyse(UNDECLARED.replace("int a;", "int a;\n int b;"), "fused");
+
+        assertEquals(List.of(), skipped(reports));
+        // Now Types checks the sum
+        TestUtils.mustFail(reports);
+    }
+
+    private static class Independent implements AnalysisPass {
+        @Override
+        public List<Report> analyze(JmmNode root, SymbolTable table) {
+            return List.of();
+        }
+    }
+
+    private static class Dependent extends Independent {
+        @Override
+        public List<Class<? extends AnalysisPass>> getDependencies() {
+            return List.of(Independent.class);
+        }
+    }
+
+    private static class Transitive extends Independent {
+        @Override
+        public List<Class<? extends AnalysisPass>> getDependencies() {
+            return List.of(Dependent.class, Independent.class);
+        }
+    }
+
+    private static class SelfDependent extends Independent {
+        @Override
+        public List<Class<? extends AnalysisPass>> getDependencies() {
+            return List.of(SelfDependent.class);
+        }
+    }
+
+    private static List<List<Class<?>>> levels(List<AnalysisPass> passes) {
+        return AnalysisScheduler.getLevels(passes).stream()
+                .map(level -> level.stream().<Class<?>>map(Object::getClass).toList())
+                .toList();
+    }
+
+    @Test
+    public void passesRunOneLevelAfterTheirLastDependency() {
+        var passes = List.<AnalysisPass>of(new Transitive(), new Dependent(), new Independent());
+
+        assertEquals(List.of(List.of(Independent.class), List.of(Dependent.class), List.of(Transitive.class)),
+                levels(passes));
+    }
+
+    @Test
+    public void independentPassesShareTheFirstLevel() {
+        var passes = JmmAnalysisImpl.createPasses();
+
+        var first = levels(passes).get(0);
+        assertTrue(first.contains(UndeclaredVariable.class));
+        assertFalse(first.contains(Types.class));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void cyclicDependenciesAreRejected() {
+        AnalysisScheduler.getLevels(List.<AnalysisPass>of(new SelfDependent()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingDependenciesAreRejected() {
+        AnalysisScheduler.getLevels(List.<AnalysisPass>of(new Dependent()));
+    }
+}
@@ -0,0 +1,68 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.utils.Instrumentation;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JmmAnalysisImplTest {
+
+    private static final String FOLDABLE = """
+            class Foldable {
+                public int answer() {
+                    return 40 + 2;
+                }
+            }
+            """;
+
+    private static String ollir(String code, String optimize) {
+        var config = CompilerConfig.getDefault();
+        config.put("optimize", optimize);
+        var result = TestUtils.optimize(code, config);
+        TestUtils.noErrors(result);
+        return result.getOllirCode();
+    }
+
+    @Test
+    public void constantsAreOnlyFoldedWithOptimizations() {
+        assertTrue(ollir(FOLDABLE, "true").contains("42.i32"));
+        assertFalse(ollir(FOLDABLE, "false").contains("42.i32"));
+    }
+
+    private static List<Instrumentation.Step> passSteps(String analysis) {
+        var config = CompilerConfig.getDefault();
+        config.put("analysis", analysis);
+
+        try (var instrumentation = Instrumentation.begin()) {
+            Instrumentation.measure("analysis", () -> TestUtils.noErrors(
+                    TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm"), config)));
+            return instrumentation.getSteps().stream()
+                    .filter(step -> step.name().startsWith("analysis/passes/"))
+                    .toList();
+        }
+    }
+
+    @Test
+    public void eachPassIsTimedInBothModes() {
+        var names = JmmAnalysisImpl.createPasses().stream()
+                .map(pass -> "analysis/passes/" + pass.getClass().getSimpleName())
+                .collect(Collectors.toSet());
+
+        for (var analysis : List.of("fused", "parallel")) {
+            var steps = passSteps(analysis);
+
+            // Listed in the order of the levels of the scheduler
+            assertEquals(analysis, names.size(), steps.size());
+            assertEquals(analysis, names, steps.stream().map(Instrumentation.Step::name).collect(Collectors.toSet()));
+            assertTrue(steps.toString(), steps.stream().allMatch(step -> step.wallNanos() > 0));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package pt.up.fe.comp2024.analysis.cfg;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.ConstantFolder;
+import pt.up.fe.comp2024.ast.Kind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionalConstantPropagationTest {
+
+    private static final String PROGRAM = """
+            class Propagation {
+
+                public int call() {
+                    return 1;
+                }
+
+                public int arms(boolean c) {
+                    int a;
+                    if (c) {
+                        a = 5;
+                    } else {
+                        a = 5;
+                    }
+                    return a;
+                }
+
+                public int aroundLoop(int n) {
+                    int a;
+                    int i;
+                    a = 3;
+                    i = 0;
+                    while (i < n) {
+                        i = i + a;
+                    }
+                    return a * 2;
+                }
+
+                public int prune() {
+                    boolean b;
+                    int a;
+                    b = true;
+                    if (b) {
+                        a = 1;
+                    } else {
+                        a = this.call();
+                    }
+                    return a;
+                }
+
+                public int neverEntered() {
+                    boolean f;
+                    int a;
+                    f = false;
+                    a = 0;
+                    while (f) {
+                        a = a + 1;
+                    }
+                    while (false) {
+                        a = a + 2;
+                    }
+                    return a;
+                }
+
+                public int impureStores() {
+                    int a;
+                    int b;
+                    int zero;
+                    zero = 0;
+                    a = this.call();
+                    b = 10 / zero;
+                    a = 2;
+                    return a;
+                }
+            }
+            """;
+
+    private static JmmSemanticsResult analyse(String code, boolean optimize) {
+        var config = CompilerConfig.getDefault();
+        config.put("optimize", String.valueOf(optimize));
+        return TestUtils.analyse(code, config);
+    }
+
+    private static JmmNode method(JmmSemanticsResult result, String name) {
+        return result.getRootNode().getDescendants(Kind.METHOD_DECL).stream()
+                .filter(method -> method.get("name").equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static JmmNode returned(JmmNode method) {
+        return method.getChildren(Kind.RETURN_STMT).get(0).getChild(0).getChild(0);
+    }
+
+    private static void assertReturnsLiteral(JmmNode method, String value) {
+        var returned = returned(method);
+        assertEquals(method.toTree(), Kind.INTEGER_LITERAL.getNodeName(), returned.getKind());
+        assertEquals(value, returned.get("value"));
+    }
+
+    private static int count(JmmNode method, Kind kind) {
+        return method.getDescendants(kind).size();
+    }
+
+    @Test
+    public void constantAssignedInBothArms() {
+        var arms = method(analyse(PROGRAM, true), "arms");
+
+        assertReturnsLiteral(arms, "5");
+        // Both stores are dead afterwards, and so is the if they leave empty
+        assertEquals(arms.toTree(), 0, count(arms, Kind.IF_STMT));
+    }
+
+    @Test
+    public void constantNotChangedByTheLoop() {
+        var loop = method(analyse(PROGRAM, true), "aroundLoop");
+
+        assertReturnsLiteral(loop, "6");
+        var increment = loop.getDescendants(Kind.WHILE_STMT).get(0).getDescendants(Kind.BINARY_EXPR).stream()
+                .filter(expr -> expr.get("op").equals("+"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(Kind.INTEGER_LITERAL.getNodeName(), increment.getChild(1).getKind());
+        assertEquals("3", increment.getChild(1).get("value"));
+    }
+
+    @Test
+    public void ifWithConstantConditionIsReplacedByTheTakenArm() {
+        var prune = method(analyse(PROGRAM, true), "prune");
+
+        assertReturnsLiteral(prune, "1");
+        assertEquals(prune.toTree(), 0, count(prune, Kind.IF_STMT));
+        // The call was only in the arm that is not taken
+        assertEquals(prune.toTree(), 0, count(prune, Kind.METHOD_CALL_ON_OBJECT_EXPR));
+    }
+
+    @Test
+    public void loopsThatAreNeverEnteredAreRemoved() {
+        var never = method(analyse(PROGRAM, true), "neverEntered");
+
+        assertReturnsLiteral(never, "0");
+        assertEquals(never.toTree(), 0, count(never, Kind.WHILE_STMT));
+    }
+
+    @Test
+    public void storesWithSideEffectsAreKept() {
+        var impure = method(analyse(PROGRAM, true), "impureStores");
+
+        assertReturnsLiteral(impure, "2");
+        assertEquals(impure.toTree(), 1, count(impure, Kind.METHOD_CALL_ON_OBJECT_EXPR));
+        // The division by zero still throws
+        assertTrue(impure.toTree(), impure.getDescendants(Kind.BINARY_EXPR).stream()
+                .anyMatch(expr -> expr.get("op").equals("/")));
+    }
+
+    @Test
+    public void methodsAreUnchangedWithoutOptimizations() {
+        var arms = method(analyse(PROGRAM, false), "arms");
+
+        assertEquals(Kind.VAR_REF_EXPR.getNodeName(), returned(arms).getKind());
+        assertEquals(1, count(arms, Kind.IF_STMT));
+    }
+
+    private static final String INVALID = """
+            class Invalid {
+                public int foo() {
+                    boolean b;
+                    int a;
+                    b = true;
+                    a = b + 1;
+                    return a;
+                }
+            }
+            """;
+
+    @Test
+    public void invalidProgramReportsTheTypeError() {
+        var result = analyse(INVALID, true);
+
+        TestUtils.mustFail(result);
+        assertTrue(result.getReports().toString(), result.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("Invalid types for operation +")));
+    }
+
+    @Test
+    public void nonIntegerOperandsAreNotEvaluated() {
+        // Even if the propagation runs on it, a sum with a boolean is not a constant
+        var result = analyse(INVALID, false);
+        var foo = method(result, "foo");
+
+        new ConditionalConstantPropagation(result.getSymbolTable(), new ConstantFolder()).propagate(foo);
+
+        var sum = foo.getDescendants(Kind.BINARY_EXPR).get(0);
+        assertEquals(Kind.BOOLEAN_LITERAL.getNodeName(), sum.getChild(0).getKind());
+    }
+}
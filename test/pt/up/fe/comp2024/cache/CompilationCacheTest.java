@@ -0,0 +1,148 @@
+package pt.up.fe.comp2024.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmCompiler;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompilationCacheTest {
+
+    private static final String CODE = """
+            class Cached {
+                public int answer() {
+                    return 40 + 2;
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, String> config(boolean optimize) throws Exception {
+        var config = CompilerConfig.getDefault();
+        config.put("cacheDir", folder.getRoot().getPath());
+        config.put("optimize", String.valueOf(optimize));
+        return config;
+    }
+
+    private static List<String> stages(JmmCompiler.CompilationResult result) {
+        return List.copyOf(result.getStageNanos().keySet());
+    }
+
+    @Test
+    public void secondCompilationIsAHit() throws Exception {
+        var first = new JmmCompiler(config(false)).compile(CODE);
+        var second = new JmmCompiler(config(false)).compile(CODE);
+
+        assertTrue(first.isSuccess());
+        assertEquals(List.of("cache", "parse", "analysis", "ollir", "jasmin"), stages(first));
+        assertEquals(List.of("cache"), stages(second));
+        assertEquals(first.getOllirCode(), second.getOllirCode());
+        assertEquals(first.getJasminCode(), second.getJasminCode());
+        assertEquals(first.getReports().toString(), second.getReports().toString());
+    }
+
+    @Test
+    public void changedOptionsMiss() throws Exception {
+        new JmmCompiler(config(false)).compile(CODE);
+        var optimized = new JmmCompiler(config(true)).compile(CODE);
+
+        assertTrue(stages(optimized).contains("parse"));
+    }
+
+    @Test
+    public void changedSourceMisses() throws Exception {
+        var original = new JmmCompiler(config(false)).compile(CODE);
+        var changed = new JmmCompiler(config(false)).compile(CODE.replace("40", "41"));
+
+        assertTrue(stages(changed).contains("parse"));
+        assertNotEquals(original.getJasminCode(), changed.getJasminCode());
+    }
+
+    @Test
+    public void failedUnitsAreNotCached() throws Exception {
+        var invalid = CODE.replace("40 + 2", "true + 2");
+        new JmmCompiler(config(false)).compile(invalid);
+        var again = new JmmCompiler(config(false)).compile(invalid);
+
+        assertTrue(stages(again).contains("parse"));
+        assertFalse(again.isSuccess());
+    }
+
+    @Test
+    public void cachesWithDifferentLimitsAreDistinct() {
+        var directory = folder.getRoot().toPath();
+
+        assertSame(CompilationCache.forDirectory(directory, 1024), CompilationCache.forDirectory(directory, 1024));
+        assertNotSame(CompilationCache.forDirectory(directory, 1024), CompilationCache.forDirectory(directory, 2048));
+    }
+
+    @Test
+    public void entriesPastTheLimitAreEvicted() throws Exception {
+        var cache = CompilationCache.forDirectory(folder.newFolder().toPath(), 64);
+        var key = CompilationCache.key(CODE, Map.of());
+
+        cache.put(key, CODE, CODE, List.of());
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    public void reportsAreKeptInTheEntry() throws Exception {
+        var cache = CompilationCache.forDirectory(folder.newFolder().toPath(), 1024 * 1024);
+        var key = CompilationCache.key(CODE, Map.of());
+        var warning = Report.newWarn(Stage.SEMANTIC, 3, 7, "Unused variable 'a'", null);
+        var log = Report.newLog(Stage.OPTIMIZATION, -1, -1, "Allocated 2 registers", null);
+
+        cache.put(key, CODE, CODE, List.of(warning, log));
+
+        var reports = cache.get(key).orElseThrow().reports();
+        assertEquals(List.of(warning.toString(), log.toString()), reports.stream().map(Report::toString).toList());
+        assertEquals(ReportType.WARNING, reports.get(0).getType());
+    }
+
+    @Test
+    public void overwrittenEntriesAreNotCountedTwice() throws Exception {
+        var cache = CompilationCache.forDirectory(folder.newFolder().toPath(), 1024 * 1024);
+        var key = CompilationCache.key(CODE, Map.of());
+
+        cache.put(key, CODE, CODE, List.of());
+        long size = cache.getSizeEstimate();
+        for (int i = 0; i < 10; i++) {
+            cache.put(key, CODE, CODE, List.of());
+        }
+
+        assertEquals(size, cache.getSizeEstimate());
+    }
+
+    @Test
+    public void staleTemporaryFilesAreRemovedOnEviction() throws Exception {
+        var directory = folder.newFolder().toPath();
+        var stale = Files.writeString(directory.resolve("stale.tmp"), "x".repeat(1000));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 60 * 60 * 1000));
+        var fresh = Files.writeString(directory.resolve("fresh.tmp"), "x");
+
+        // The leftover counts towards the limit, so the first put evicts
+        var cache = CompilationCache.forDirectory(directory, 1024);
+        cache.put(CompilationCache.key(CODE, Map.of()), "", "", List.of());
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+    }
+}
@@ -0,0 +1,107 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegisterAllocatorTest {
+
+    private static final String COPIES = SpecsIo.getResource(
+            "pt/up/fe/comp/cpf/5_optimizations/reg_alloc/regalloc.jmm");
+
+    private static final String LIVE = """
+            class Registers {
+                public int id(int v) {
+                    return v;
+                }
+
+                public int live(int x, int y) {
+                    int a;
+                    int b;
+                    a = x + 1;
+                    b = a + y;
+                    return this.id(b) + x;
+                }
+
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static final Pattern LIMIT_LOCALS = Pattern.compile("\\.limit\\s+locals\\s+(\\d+)");
+
+    private static Map<String, String> config(int registers) {
+        var config = CompilerConfig.getDefault();
+        config.put("registerAllocation", String.valueOf(registers));
+        return config;
+    }
+
+    private static Map<String, Integer> registers(OllirResult result, String method) {
+        return CpUtils.getMethod(result, method).getVarTable().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getVirtualReg()));
+    }
+
+    @Test
+    public void fewestRegistersGiveTheLocalsLimit() {
+        var jasmin = TestUtils.backend(COPIES, config(0));
+
+        var matcher = LIMIT_LOCALS.matcher(CpUtils.getJasminMethod(jasmin, "soManyRegisters"));
+        assertTrue(jasmin.getJasminCode(), matcher.find());
+        // 'this' is never read, so the copies share its register, and the parameter keeps the next one
+        assertEquals(jasmin.getJasminCode(), "2", matcher.group(1));
+    }
+
+    @Test
+    public void copiesShareTheirRegister() {
+        var registers = registers(TestUtils.optimize(COPIES, config(0)), "soManyRegisters");
+
+        var copies = Stream.of("a", "b", "c", "d").map(registers::get).distinct().count();
+        assertEquals(registers.toString(), 1, copies);
+    }
+
+    @Test
+    public void thisAndParametersKeepTheirRegistersWhileLive() {
+        var registers = registers(TestUtils.optimize(LIVE, config(0)), "live");
+
+        assertEquals(registers.toString(), 0, (int) registers.get("this"));
+        assertEquals(registers.toString(), 1, (int) registers.get("x"));
+        assertEquals(registers.toString(), 2, (int) registers.get("y"));
+
+        // 'this' is read by the call, 'y' after 'a' is assigned, and 'x' at the end
+        assertTrue(registers.toString(), registers.get("a") > 2);
+        registers.forEach((name, register) -> {
+            if (!Set.of("this", "x", "y").contains(name)) {
+                assertTrue(registers.toString(), register != 1);
+            }
+        });
+    }
+
+    @Test
+    public void tooFewRegistersIsReported() {
+        var result = TestUtils.optimize(LIVE, config(2));
+
+        var errors = result.getReports().stream().filter(report -> report.getType() == ReportType.ERROR).toList();
+        assertEquals(result.getReports().toString(), 1, errors.size());
+        assertEquals(Stage.OPTIMIZATION, errors.get(0).getStage());
+        assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().contains("'live'"));
+    }
+
+    @Test
+    public void enoughRegistersAreNotReported() {
+        TestUtils.noErrors(TestUtils.optimize(LIVE, config(4)));
+    }
+}
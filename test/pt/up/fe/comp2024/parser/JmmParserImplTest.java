@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.typed.TypedNode;
+import pt.up.fe.comp2024.utils.Instrumentation;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JmmParserImplTest {
+
+    // The braces of each arm can be parsed either as a ScopeStmt or as the braces of the if itself
+    private static final String AMBIGUOUS = """
+            class Ambiguous {
+                public int foo(boolean c) {
+                    int a;
+                    if (c) { a = 1; } else { a = 2; }
+                    while (c) { a = a + 1; }
+                    return a;
+                }
+            }
+            """;
+
+    private static final String INVALID = """
+            class Invalid {
+                public int foo() {
+                    return 1 +;
+                }
+            }
+            """;
+
+    private record Parse(JmmParserResult result, List<String> steps) {
+    }
+
+    private static Parse parse(String code, String parser) {
+        var config = CompilerConfig.getDefault();
+        config.put("parser", parser);
+
+        try (var instrumentation = Instrumentation.begin()) {
+            var result = new JmmParserImpl().parse(code, config);
+            return new Parse(result, instrumentation.getSteps().stream().map(Instrumentation.Step::name).toList());
+        }
+    }
+
+    @Test
+    public void ambiguousInputParsesWithSllAlone() {
+        var sll = parse(AMBIGUOUS, "sll");
+        var ll = parse(AMBIGUOUS, "ll");
+
+        assertFalse(ReportUtils.anyError(sll.result().getReports()));
+        assertEquals(List.of("sll", "convert"), sll.steps());
+        assertEquals(List.of("ll", "convert"), ll.steps());
+        assertEquals(ll.result().getRootNode().toTree(), sll.result().getRootNode().toTree());
+    }
+
+    @Test
+    public void syntaxErrorFallsBackToLl() {
+        var sll = parse(INVALID, "sll");
+        var ll = parse(INVALID, "ll");
+
+        assertEquals(List.of("sll", "ll"), sll.steps());
+        assertTrue(ReportUtils.anyError(sll.result().getReports()));
+        assertEquals(ll.result().getReports().toString(), sll.result().getReports().toString());
+    }
+
+    @Test
+    public void pooledParserRecoversAfterFallback() {
+        parse(INVALID, "sll");
+        var valid = parse(AMBIGUOUS, "sll");
+
+        assertFalse(ReportUtils.anyError(valid.result().getReports()));
+        assertEquals(List.of("sll", "convert"), valid.steps());
+    }
+
+    @Test
+    public void typedBuilderGivesTheGenericTree() {
+        var resources = List.of("pt/up/fe/comp/cp2/apps/Simple.jmm",
+                "pt/up/fe/comp/cpf/3_ollir/arrays/VarargsAndArrayInit.jmm",
+                "pt/up/fe/comp/cpf/3_ollir/control_flow/IfElseInMain.jmm");
+
+        for (var resource : resources) {
+            var code = SpecsIo.getResource(resource);
+            assertSameTree(buildAst(code, "generic"), buildAst(code, "typed"));
+        }
+        assertSameTree(buildAst(AMBIGUOUS, "generic"), buildAst(AMBIGUOUS, "typed"));
+    }
+
+    @Test
+    public void typedBuilderGivesOneNodeClassPerKind() {
+        var root = buildAst(SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm"), "typed");
+
+        for (var node : root.getDescendantsAndSelfStream().toList()) {
+            assertTrue(node.toString(), node instanceof TypedNode);
+            assertEquals(node.getKind(), ((TypedNode) node).getTypedKind().getNodeName());
+        }
+
+        var method = (TypedNode.MethodDecl) root.getDescendants(Kind.METHOD_DECL).get(0);
+        assertEquals(method.get("name"), method.getName());
+        assertEquals(method.getObject("isPublic"), method.isPublic());
+    }
+
+    @Test
+    public void typedNodeKeepsTheAttributesPutByThePasses() {
+        var literal = new TypedNode.IntegerLiteral(1);
+        assertEquals(Set.of("value"), Set.copyOf(literal.getAttributes()));
+
+        literal.put("value", "2");
+        literal.putObject("type", "int");
+        literal.put("lineStart", "3");
+
+        assertEquals(2, literal.getValue());
+        assertEquals("int", literal.getObject("type"));
+        assertEquals("3", literal.get("lineStart"));
+        assertTrue(literal.hasAttribute("type"));
+        assertFalse(literal.hasAttribute("other"));
+    }
+
+    private static JmmNode buildAst(String code, String ast) {
+        var config = CompilerConfig.getDefault();
+        config.put("ast", ast);
+        return new JmmParserImpl().parse(code, config).getRootNode();
+    }
+
+    private static void assertSameTree(JmmNode expected, JmmNode actual) {
+        assertEquals(expected.getKind(), actual.getKind());
+        assertEquals(expected.getHierarchy(), actual.getHierarchy());
+        assertEquals(Set.copyOf(expected.getAttributes()), Set.copyOf(actual.getAttributes()));
+        for (var attribute : expected.getAttributes()) {
+            assertEquals(attribute + " of " + expected, expected.getObject(attribute), actual.getObject(attribute));
+        }
+
+        assertEquals(expected.getNumChildren(), actual.getNumChildren());
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            assertSameTree(expected.getChild(i), actual.getChild(i));
+        }
+    }
+
+    @Test
+    public void parserOption() {
+        assertTrue(CompilerConfig.isTwoStageParsing(CompilerConfig.getDefault()));
+        assertTrue(CompilerConfig.isTwoStageParsing(Map.of("parser", "sll")));
+        assertFalse(CompilerConfig.isTwoStageParsing(Map.of("parser", "ll")));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void unknownParserOptionIsRejected() {
+        CompilerConfig.isTwoStageParsing(Map.of("parser", "lalr"));
+    }
+}
@@ -0,0 +1,112 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable.SymbolKind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JmmSymbolTableTest {
+
+    private static final String SHADOWING = """
+            import lib.Other;
+            import lib.w;
+            class Shadowing {
+                int x;
+                boolean y;
+                Other z;
+                public int params(boolean x, int w) {
+                    int[] y;
+                    return w;
+                }
+                public int locals(int p) {
+                    boolean p;
+                    int x;
+                    return x;
+                }
+                public int fields() {
+                    return x;
+                }
+            }
+            """;
+
+    private static JmmSymbolTable table(String code) {
+        return (JmmSymbolTable) TestUtils.analyse(code).getSymbolTable();
+    }
+
+    private static void assertResolves(JmmSymbolTable table, String method, String name, SymbolKind kind,
+                                       Type type) {
+        var symbol = table.resolve(method, name);
+        assertEquals(name + " in " + method, kind, symbol.kind());
+        assertEquals(name + " in " + method, type, symbol.getType());
+    }
+
+    @Test
+    public void parametersAndLocalsHideFields() {
+        var table = table(SHADOWING);
+
+        assertResolves(table, "params", "x", SymbolKind.PARAMETER, new Type("boolean", false));
+        assertResolves(table, "params", "y", SymbolKind.LOCAL, new Type("int", true));
+        assertResolves(table, "params", "z", SymbolKind.FIELD, new Type("Other", false));
+    }
+
+    @Test
+    public void localsHideParameters() {
+        var table = table(SHADOWING);
+
+        assertResolves(table, "locals", "p", SymbolKind.LOCAL, new Type("boolean", false));
+        assertResolves(table, "locals", "x", SymbolKind.LOCAL, new Type("int", false));
+    }
+
+    @Test
+    public void fieldsAreSeenFromEveryMethod() {
+        var table = table(SHADOWING);
+
+        assertResolves(table, "fields", "x", SymbolKind.FIELD, new Type("int", false));
+        assertResolves(table, "fields", "y", SymbolKind.FIELD, new Type("boolean", false));
+    }
+
+    @Test
+    public void declarationsHideImports() {
+        var table = table(SHADOWING);
+
+        assertEquals(SymbolKind.IMPORT, table.resolve("fields", "Other").kind());
+        assertEquals(SymbolKind.IMPORT, table.resolve("fields", "w").kind());
+        assertResolves(table, "params", "w", SymbolKind.PARAMETER, new Type("int", false));
+    }
+
+    @Test
+    public void undeclaredNamesAreNotResolved() {
+        var table = table(SHADOWING);
+
+        assertNull(table.resolve("params", "undeclared"));
+        assertNull(table.resolve("noSuchMethod", "undeclared"));
+    }
+
+    @Test
+    public void analysisUsesTheShadowingDeclaration() {
+        // The boolean parameter hides the int field, so the sum is invalid
+        TestUtils.mustFail(TestUtils.analyse("""
+                class Shadowing {
+                    int x;
+                    public int foo(boolean x) {
+                        return x + 1;
+                    }
+                }
+                """));
+
+        // The int local hides the boolean field
+        TestUtils.noErrors(TestUtils.analyse("""
+                class Shadowing {
+                    boolean x;
+                    public int foo() {
+                        int x;
+                        x = 1;
+                        return x + 1;
+                    }
+                }
+                """));
+    }
+}
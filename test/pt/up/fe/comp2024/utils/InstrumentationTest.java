@@ -0,0 +1,117 @@
+package pt.up.fe.comp2024.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class InstrumentationTest {
+
+    private static final int FORKED_BYTES = 16 * 1024 * 1024;
+
+    private static Object runOnOtherThread(Callable<Object> task) {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void forkedWorkIsCountedInItsStepAndTheEnclosingOnes() {
+        try (var instrumentation = Instrumentation.begin()) {
+            Instrumentation.measure("stage", () -> Instrumentation.measure("step",
+                    () -> runOnOtherThread(Instrumentation.forked(() -> new byte[FORKED_BYTES]))));
+
+            var steps = instrumentation.getSteps();
+            assertEquals(List.of("stage", "stage/step"), steps.stream().map(Instrumentation.Step::name).toList());
+
+            assumeTrue(steps.get(1).allocatedBytes() >= 0);
+            assertTrue(steps.get(1).allocatedBytes() >= FORKED_BYTES);
+            assertTrue(steps.get(0).allocatedBytes() >= steps.get(1).allocatedBytes());
+        }
+    }
+
+    @Test
+    public void workOnOtherThreadsIsNotCountedUnlessForked() {
+        try (var instrumentation = Instrumentation.begin()) {
+            Instrumentation.measure("step", () -> runOnOtherThread(() -> new byte[FORKED_BYTES]));
+
+            var step = instrumentation.getSteps().get(0);
+            assumeTrue(step.allocatedBytes() >= 0);
+            assertTrue(step.allocatedBytes() < FORKED_BYTES);
+        }
+    }
+
+    @Test
+    public void forkedTaskRunOnTheSameThreadIsCountedOnce() {
+        try (var instrumentation = Instrumentation.begin()) {
+            Instrumentation.measure("step", () -> {
+                try {
+                    return Instrumentation.forked(() -> new byte[FORKED_BYTES]).call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            var step = instrumentation.getSteps().get(0);
+            assumeTrue(step.allocatedBytes() >= 0);
+            assertTrue(step.allocatedBytes() >= FORKED_BYTES);
+            assertTrue(step.allocatedBytes() < 2L * FORKED_BYTES);
+        }
+    }
+
+    @Test
+    public void forkedOutsideAStepRunsTheTaskAsIs() {
+        Callable<Object> task = () -> 42;
+        assertEquals(task, Instrumentation.forked(task));
+    }
+
+    private static void accumulate(String name, int bytes) {
+        try (var accumulator = Instrumentation.accumulate(name)) {
+            accumulator.start();
+            var array = new byte[bytes];
+            accumulator.stop();
+            assertEquals(bytes, array.length);
+        }
+    }
+
+    @Test
+    public void accumulatedCallsAreListedAfterTheirStep() {
+        try (var instrumentation = Instrumentation.begin()) {
+            Instrumentation.measure("stage", () -> {
+                accumulate("calls", FORKED_BYTES);
+                Instrumentation.measure("step", () -> 0);
+                accumulate("calls", FORKED_BYTES);
+                return runOnOtherThread(Instrumentation.forked(() -> {
+                    accumulate("calls", FORKED_BYTES);
+                    return null;
+                }));
+            });
+
+            var steps = instrumentation.getSteps();
+            assertEquals(List.of("stage", "stage/step", "stage/calls"),
+                    steps.stream().map(Instrumentation.Step::name).toList());
+
+            var calls = steps.get(2);
+            assertEquals(-1, calls.cpuNanos());
+            assertTrue(calls.wallNanos() > 0);
+            assumeTrue(calls.allocatedBytes() >= 0);
+            assertTrue(calls.allocatedBytes() >= 3L * FORKED_BYTES);
+        }
+    }
+
+    @Test
+    public void accumulateOutsideAStepGivesNothing() {
+        assertNull(Instrumentation.accumulate("calls"));
+    }
+}